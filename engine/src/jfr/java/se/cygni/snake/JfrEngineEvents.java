@@ -0,0 +1,192 @@
+package se.cygni.snake;
+
+import jdk.jfr.*;
+
+/**
+ * The engine hooks as Java Flight Recorder events, loaded by {@link EngineEvents} when
+ * this source set is on the classpath. Events are begun where their section starts, so
+ * their start time and duration are the real ones. Which events are recorded, and from
+ * what duration, is set by the recording, see src/jfr/snake.jfc.
+ */
+public class JfrEngineEvents extends EngineEvents {
+
+    private final EventType[] types = {
+            EventType.getEventType(DecisionEvent.class),
+            EventType.getEventType(RootSearchEvent.class),
+            EventType.getEventType(OpenSpacesEvent.class),
+            EventType.getEventType(CollisionRiskEvent.class)
+    };
+
+    @Override
+    public boolean isEnabled(int kind){
+        return types[kind].isEnabled();
+    }
+
+    @Override
+    public Object begin(int kind){
+        if(!types[kind].isEnabled()){
+            return null;
+        }
+        Event event;
+        switch(kind){
+            case DECISION:
+                event = new DecisionEvent();
+                break;
+            case ROOT_SEARCH:
+                event = new RootSearchEvent();
+                break;
+            case OPEN_SPACES:
+                event = new OpenSpacesEvent();
+                break;
+            default:
+                event = new CollisionRiskEvent();
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void decision(Object begun, long gameTick, int depthReached, long nodes, long cellsFlooded,
+                         Direction direction){
+        if(!(begun instanceof DecisionEvent)){
+            return;
+        }
+        DecisionEvent event = (DecisionEvent) begun;
+        event.end();
+        if(event.shouldCommit()){
+            event.gameTick = gameTick;
+            event.depthReached = depthReached;
+            event.nodes = nodes;
+            event.cellsFlooded = cellsFlooded;
+            event.direction = direction.name();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void rootSearch(Object begun, long gameTick, int depthReached, long nodes, long cellsFlooded,
+                           Direction direction, int value){
+        if(!(begun instanceof RootSearchEvent)){
+            return;
+        }
+        RootSearchEvent event = (RootSearchEvent) begun;
+        event.end();
+        if(event.shouldCommit()){
+            event.gameTick = gameTick;
+            event.depthReached = depthReached;
+            event.nodes = nodes;
+            event.cellsFlooded = cellsFlooded;
+            event.direction = direction.name();
+            event.value = value;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void openSpaces(Object begun, long gameTick, int ply, long cellsFlooded, Direction direction,
+                           int openSpaces){
+        if(!(begun instanceof OpenSpacesEvent)){
+            return;
+        }
+        OpenSpacesEvent event = (OpenSpacesEvent) begun;
+        event.end();
+        if(event.shouldCommit()){
+            event.gameTick = gameTick;
+            event.ply = ply;
+            event.cellsFlooded = cellsFlooded;
+            event.direction = direction.name();
+            event.openSpaces = openSpaces;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void collisionRisk(Object begun, long gameTick, long screenNanos, Direction direction, int risk){
+        if(!(begun instanceof CollisionRiskEvent)){
+            return;
+        }
+        CollisionRiskEvent event = (CollisionRiskEvent) begun;
+        event.end();
+        if(event.shouldCommit()){
+            event.gameTick = gameTick;
+            event.screenTime = screenNanos;
+            event.direction = direction.name();
+            event.risk = risk;
+            event.commit();
+        }
+    }
+
+    @Name("se.cygni.snake.Decision")
+    @Label("Decision")
+    @Description("A tick from the map update arriving to the move being sent")
+    @Category("Snake")
+    @StackTrace(false)
+    static class DecisionEvent extends Event {
+        @Label("Game Tick")
+        long gameTick;
+        @Label("Depth Reached")
+        int depthReached;
+        @Label("Nodes")
+        long nodes;
+        @Label("Cells Flooded")
+        long cellsFlooded;
+        @Label("Direction")
+        String direction;
+    }
+
+    @Name("se.cygni.snake.RootSearch")
+    @Label("Root Search")
+    @Description("The deep search of one root move")
+    @Category("Snake")
+    @StackTrace(false)
+    static class RootSearchEvent extends Event {
+        @Label("Game Tick")
+        long gameTick;
+        @Label("Depth Reached")
+        int depthReached;
+        @Label("Nodes")
+        long nodes;
+        @Label("Cells Flooded")
+        long cellsFlooded;
+        @Label("Direction")
+        String direction;
+        @Label("Value")
+        int value;
+    }
+
+    @Name("se.cygni.snake.OpenSpaces")
+    @Label("Open Spaces")
+    @Description("One open space count, getOpenSpacesinDir")
+    @Category("Snake")
+    @StackTrace(false)
+    static class OpenSpacesEvent extends Event {
+        @Label("Game Tick")
+        long gameTick;
+        @Label("Ply")
+        int ply;
+        @Label("Cells Flooded")
+        long cellsFlooded;
+        @Label("Direction")
+        String direction;
+        @Label("Open Spaces")
+        int openSpaces;
+    }
+
+    @Name("se.cygni.snake.CollisionRisk")
+    @Label("Collision Risk")
+    @Description("The pass over the collision risk of the root moves that may change the move")
+    @Category("Snake")
+    @StackTrace(false)
+    static class CollisionRiskEvent extends Event {
+        @Label("Game Tick")
+        long gameTick;
+        @Label("Screen Time")
+        @Description("Time spent on the risk of each root move while screening, before the deep search")
+        @Timespan(Timespan.NANOSECONDS)
+        long screenTime;
+        @Label("Direction")
+        String direction;
+        @Label("Risk")
+        int risk;
+    }
+}
@@ -0,0 +1,78 @@
+package se.cygni.snake;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One tick of a game as the engine gets it, in the engine's own types: the map, the
+ * food and the bodies of our snake and of the foes still alive, heads first.
+ */
+public class Board {
+
+    private final long gameTick;
+    private final int width;
+    private final int height;
+    private final Coordinate[] obstacles;
+    private final Coordinate[] food;
+    private final String selfId;
+    private final Coordinate[] self;
+    private final List<String> foeIds = new ArrayList<>();
+    private final List<Coordinate[]> foes = new ArrayList<>();
+
+    public Board(long gameTick, int width, int height, Coordinate[] obstacles, Coordinate[] food,
+                 String selfId, Coordinate[] self){
+        this.gameTick = gameTick;
+        this.width = width;
+        this.height = height;
+        this.obstacles = obstacles;
+        this.food = food;
+        this.selfId = selfId;
+        this.self = self;
+    }
+
+    public Board addFoe(String id, Coordinate[] body){
+        foeIds.add(id);
+        foes.add(body);
+        return this;
+    }
+
+    public long getGameTick() {
+        return gameTick;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Coordinate[] getObstacles() {
+        return obstacles;
+    }
+
+    public Coordinate[] getFood() {
+        return food;
+    }
+
+    public String getSelfId() {
+        return selfId;
+    }
+
+    public Coordinate[] getSelf() {
+        return self;
+    }
+
+    public int getFoeCount() {
+        return foes.size();
+    }
+
+    public String getFoeId(int i) {
+        return foeIds.get(i);
+    }
+
+    public Coordinate[] getFoe(int i) {
+        return foes.get(i);
+    }
+}
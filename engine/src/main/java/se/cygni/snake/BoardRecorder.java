@@ -0,0 +1,158 @@
+package se.cygni.snake;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes boards as seen by the engine, one line per tick, so they can be replayed
+ * offline. A line looks like
+ *
+ * <pre>
+ * 46 34;o 12,57;f 300,301;s self 17 DOWN 100,146;e foe0 17 LEFT 200,201
+ * </pre>
+ *
+ * with the map size, obstacle cells, food cells, our snake and then one entry per foe.
+ * A snake is written as id, lifeTime, direction and its body cells from the head.
+ */
+public class BoardRecorder implements Closeable {
+
+    private final Writer writer;
+
+    public BoardRecorder(File file) throws IOException {
+        this.writer = new BufferedWriter(new FileWriter(file, true));
+    }
+
+    public void record(SnakeState state) throws IOException {
+        writer.write(format(state));
+        writer.write('\n');
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    public static String format(SnakeState state){
+        StringBuilder sb = new StringBuilder();
+        int width = state.getMapWidth();
+        int cells = width * state.getMapHeight();
+        sb.append(width).append(' ').append(state.getMapHeight());
+
+        sb.append(";o ");
+        String separator = "";
+        for(int cell = 0; cell < cells; cell++){
+            if(state.isObstacle(cell)){
+                sb.append(separator).append(cell);
+                separator = ",";
+            }
+        }
+
+        sb.append(";f ");
+        separator = "";
+        for(int cell = 0; cell < cells; cell++){
+            if(state.isFood(cell)){
+                sb.append(separator).append(cell);
+                separator = ",";
+            }
+        }
+
+        sb.append(";s ");
+        appendSnake(sb, state.getSelf());
+        for(int i = 0; i < state.getFoeCount(); i++){
+            sb.append(";e ");
+            appendSnake(sb, state.getFoe(i));
+        }
+        return sb.toString();
+    }
+
+    private static void appendSnake(StringBuilder sb, Snake snake){
+        sb.append(snake.getId()).append(' ').append(snake.getLifeTime()).append(' ').append(snake.getDir()).append(' ');
+        for(int i = 0; i < snake.getLength(); i++){
+            if(i > 0){
+                sb.append(',');
+            }
+            sb.append(snake.getCell(i));
+        }
+    }
+
+    /**
+     * Reads back a line written by {@link #format(SnakeState)}.
+     */
+    public static SnakeState parse(String line){
+        String[] parts = line.split(";");
+        String[] size = parts[0].trim().split(" ");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+
+        Coordinate[] obstacles = toCoordinates(readCells(parts[1], "o"), width);
+        Coordinate[] food = toCoordinates(readCells(parts[2], "f"), width);
+
+        Snake self = null;
+        ArrayList<Snake> foes = new ArrayList<>();
+        for(int i = 3; i < parts.length; i++){
+            String[] fields = parts[i].split(" ");
+            if(fields.length != 5){
+                throw new IllegalArgumentException("Bad snake entry: " + parts[i]);
+            }
+            Snake snake = new Snake(fields[1], toCoordinates(readCells(fields[4]), width),
+                    Long.parseLong(fields[2]), width);
+            snake.setDir(Direction.valueOf(fields[3]));
+            if(fields[0].equals("s")){
+                self = snake;
+            } else {
+                foes.add(snake);
+            }
+        }
+        if(self == null){
+            throw new IllegalArgumentException("No snake of our own in: " + line);
+        }
+
+        SnakeState state = new SnakeState(height, width, self, foes, obstacles);
+        state.setFood(food);
+        return state;
+    }
+
+    private static int[] readCells(String part, String tag){
+        String trimmed = part.trim();
+        if(!trimmed.startsWith(tag)){
+            throw new IllegalArgumentException("Expected '" + tag + "' in: " + part);
+        }
+        return readCells(trimmed.substring(tag.length()));
+    }
+
+    private static int[] readCells(String list){
+        String trimmed = list.trim();
+        if(trimmed.isEmpty()){
+            return new int[0];
+        }
+        String[] values = trimmed.split(",");
+        int[] cells = new int[values.length];
+        for(int i = 0; i < values.length; i++){
+            cells[i] = Integer.parseInt(values[i]);
+        }
+        return cells;
+    }
+
+    private static Coordinate[] toCoordinates(int[] cells, int width){
+        Coordinate[] coordinates = new Coordinate[cells.length];
+        for(int i = 0; i < cells.length; i++){
+            coordinates[i] = new Coordinate(cells[i] % width, cells[i] / width);
+        }
+        return coordinates;
+    }
+
+    public static List<SnakeState> readAll(File file) throws IOException {
+        List<SnakeState> states = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while((line = reader.readLine()) != null){
+                if(!line.trim().isEmpty() && !line.startsWith("#")){
+                    states.add(parse(line));
+                }
+            }
+        }
+        return states;
+    }
+}
@@ -0,0 +1,142 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the state the engine decides on from one {@link Board} to the next. Our snake
+ * is stepped from the previous state when that state got our move, since only we know
+ * whether we ate; otherwise, at the start of a game or after a missed tick, the state
+ * is built from the board alone. Foes are always taken from the board.
+ *
+ * A state built from the board is also when the {@link DistanceTable} for the map is
+ * asked for, unless the engine already has it. It is built in the background while the
+ * engine goes on without one, and handed to the engine on the first board after it
+ * is ready, so no tick waits for the build.
+ */
+public class BoardTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoardTracker.class);
+
+    private final SnakeEngine engine;
+    private SnakeState state;
+    private CompletableFuture<DistanceTable> pendingDistances;
+    private long stateTick = -1;
+    private long lastAnsweredTick = -1;
+
+    public BoardTracker(SnakeEngine engine){
+        this.engine = engine;
+    }
+
+    /**
+     * Brings the state up to the given board and returns it. Resets the engine when a
+     * new game starts.
+     */
+    public SnakeState update(Board board){
+        long gameTick = board.getGameTick();
+        if(gameTick > 0 && gameTick == lastAnsweredTick + 1){
+            Coordinate[] self = board.getSelf();
+            state.updateSnakeState(self[0], getFoes(board));
+        } else {
+            initiateState(board);
+        }
+        if(pendingDistances != null && pendingDistances.isDone()){
+            takeDistances();
+        }
+        state.setFood(board.getFood());
+        stateTick = gameTick;
+        return state;
+    }
+
+    /**
+     * Records the move we answered the last board with.
+     */
+    public void moved(Direction move){
+        int front = state.getNeighbour(state.getSelf().getHeadCell(), move);
+        if(front >= 0 && state.isFood(front)){
+            LOGGER.debug("Found food!");
+            state.getSelf().setHasEaten(true);
+        }
+        lastAnsweredTick = stateTick;
+    }
+
+    /**
+     * A move to answer with if the search does not finish: straight on if possible, else
+     * any free direction.
+     */
+    public Direction getFallbackMove(){
+        Snake self = state.getSelf();
+        if(state.canIMoveInDirection(self.getDir())){
+            return self.getDir();
+        }
+        for(Direction dir : SnakeState.DIRECTIONS){
+            if(state.canIMoveInDirection(dir)){
+                return dir;
+            }
+        }
+        return self.getDir();
+    }
+
+    public SnakeState getState(){
+        return state;
+    }
+
+    private void initiateState(Board board){
+        long gameTick = board.getGameTick();
+        Snake self = new Snake(board.getSelfId(), board.getSelf(), gameTick, board.getWidth());
+        ArrayList<Snake> foes = getFoes(board);
+        if(gameTick == 0){
+            self.setDir(Direction.DOWN);
+            for(Snake foe : foes){
+                foe.setDir(Direction.DOWN);
+            }
+        }
+
+        state = new SnakeState(board.getHeight(), board.getWidth(), self, foes, board.getObstacles());
+        if(gameTick == 0){
+            engine.reset();
+        }
+        prepareDistances();
+    }
+
+    private void prepareDistances(){
+        DistanceTable table = engine.getDistanceTable();
+        if(table != null && table.matches(state)){
+            pendingDistances = null;
+            return;
+        }
+        engine.setDistanceTable(null);
+        pendingDistances = DistanceTable.forMap(state);
+    }
+
+    private void takeDistances(){
+        CompletableFuture<DistanceTable> pending = pendingDistances;
+        pendingDistances = null;
+        DistanceTable table;
+        try {
+            table = pending.join();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not build the distance table, using estimates", e);
+            return;
+        }
+        if(table == null){
+            LOGGER.info("No distance table for {}x{}, using estimates", state.getMapWidth(), state.getMapHeight());
+            return;
+        }
+        engine.setDistanceTable(table);
+        LOGGER.info("Distance table for {}x{} ready, built in {} ms, {} KB", state.getMapWidth(), state.getMapHeight(),
+                TimeUnit.NANOSECONDS.toMillis(table.getBuildNanos()), table.getBytes() / 1024);
+    }
+
+    private static ArrayList<Snake> getFoes(Board board){
+        ArrayList<Snake> foes = new ArrayList<>(board.getFoeCount());
+        for(int i = 0; i < board.getFoeCount(); i++){
+            foes.add(new Snake(board.getFoeId(i), board.getFoe(i), board.getGameTick(), board.getWidth()));
+        }
+        return foes;
+    }
+}
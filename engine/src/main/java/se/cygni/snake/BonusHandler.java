@@ -0,0 +1,61 @@
+package se.cygni.snake;
+
+import java.util.*;
+
+/**
+ * Created by trivo on 2017-03-31.
+ */
+public class BonusHandler {
+
+
+
+    private Map<Direction, BonusTracker> bonusMap;
+    private final BonusTracker[] trackers;
+
+    public BonusHandler(){
+        bonusMap = new EnumMap<>(Direction.class);
+        trackers = new BonusTracker[SnakeState.DIRECTIONS.length];
+        for(int i = 0; i < trackers.length; i++){
+            trackers[i] = new BonusTracker();
+        }
+    }
+
+    //The trackers are reused, so a handler can be kept between ticks
+    public BonusTracker addBonusTracker(Direction dir){
+        BonusTracker bt = trackers[dir.ordinal()];
+        bt.reset();
+        bonusMap.put(dir, bt);
+        return bt;
+    }
+
+    public void clear(){
+        bonusMap.clear();
+    }
+
+    public Direction getBestBonus(){
+        Collection<Direction> directions = bonusMap.keySet();
+
+        int maxValue = Integer.MIN_VALUE;
+        Direction bestBonus = Direction.DOWN;
+
+        for(Direction dir : directions){
+            BonusTracker bt = bonusMap.get(dir);
+            int bonusValue = bt.getFoodOnPath() - bt.getNearCollisions();
+            System.out.println("Direction " + dir + " has bonus value " + bonusValue);
+            if(bonusValue > maxValue){
+                maxValue = bonusValue;
+                bestBonus = dir;
+            }
+        }
+        return bestBonus;
+    }
+
+    public int getBonus(Direction dir){
+        BonusTracker bt = bonusMap.get(dir);
+        return bt.getFoodOnPath()  + bt.getKillBonus() + bt.getMiddleBonus() + bt.getFreeHeadSpaces();
+    }
+
+
+
+
+}
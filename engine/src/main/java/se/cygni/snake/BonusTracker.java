@@ -13,13 +13,27 @@ public class BonusTracker {
     private int killBonus;
 
     public BonusTracker(){
+        reset();
+    }
+
+    public void reset(){
         this.foodOnPath = 0;
         this.nearCollisions = 0;
         this.freeHeadSpaces = 0;
         this.middleBonus = 0;
+        this.middleReachedY = false;
         this.killBonus = 0;
     }
 
+    //Sets the bonuses a search found earlier, for results taken from the evaluation cache
+    void restore(int foodOnPath, int freeHeadSpaces, int middleBonus, int killBonus){
+        reset();
+        this.foodOnPath = foodOnPath;
+        this.freeHeadSpaces = freeHeadSpaces;
+        this.middleBonus = middleBonus;
+        this.killBonus = killBonus;
+    }
+
     public void foodFound(int value){
         foodOnPath += value;
     }
@@ -35,8 +49,8 @@ public class BonusTracker {
 
 
 
-    public void killBonus(){
-        killBonus += 55;
+    public void killBonus(int value){
+        killBonus += value;
     }
 
     public int getNearCollisions(){
@@ -0,0 +1,42 @@
+package se.cygni.snake;
+
+/**
+ * A position on the map, x to the right and y downwards from the top left corner.
+ * The engine works on cell indices, coordinates are only used to build states.
+ */
+public final class Coordinate {
+
+    public final int x;
+    public final int y;
+
+    public Coordinate(int x, int y){
+        this.x = x;
+        this.y = y;
+    }
+
+    public Coordinate translateBy(int dx, int dy){
+        return new Coordinate(x + dx, y + dy);
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof Coordinate)){
+            return false;
+        }
+        Coordinate other = (Coordinate) o;
+        return x == other.x && y == other.y;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * x + y;
+    }
+
+    @Override
+    public String toString(){
+        return "(" + x + ", " + y + ")";
+    }
+}
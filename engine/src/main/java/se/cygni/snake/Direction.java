@@ -0,0 +1,9 @@
+package se.cygni.snake;
+
+/**
+ * A move of the engine. Declared in the same order as the server's SnakeDirection, so
+ * ordinals in hashes, the evaluation cache and recorded boards mean the same as before.
+ */
+public enum Direction {
+    UP, DOWN, LEFT, RIGHT
+}
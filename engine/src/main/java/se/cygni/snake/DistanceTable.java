@@ -0,0 +1,309 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shortest path distances between all pairs of cells of a map, around the obstacles
+ * and ignoring the snakes. Obstacles do not move during a game, so the table is built
+ * once at the start of it, with one breadth first search per cell, and every lookup
+ * after that is a single array read.
+ *
+ * {@link #forMap(SnakeState)} builds in the background, one layout at a time on a
+ * single low priority daemon thread, so no tick waits for it and the search threads
+ * never queue behind it. Tables are kept for the last few obstacle layouts, so bots on
+ * the same map share one table and one build. A build that fails is forgotten, so the
+ * next game on that map tries again.
+ *
+ * Distances are kept in one byte per pair, unsigned, and only in a short per pair if
+ * some distance does not fit. A 46x34 map takes 2.4 MB. Maps of more than
+ * {@link #MAX_CELLS} cells get no table, and the engine keeps to its estimates there.
+ */
+public class DistanceTable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DistanceTable.class);
+
+    public static final int MAX_CELLS = 4096;
+    public static final int UNREACHABLE = Short.MAX_VALUE;
+
+    private static final int NEAR_UNREACHABLE = 0xFF;
+    private static final int CACHED_LAYOUTS = 4;
+
+    private static final Executor BUILDER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "Distance table builder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    //Tables by obstacle layout, least recently asked for first
+    private static final Map<Layout, CompletableFuture<DistanceTable>> TABLES =
+            new LinkedHashMap<Layout, CompletableFuture<DistanceTable>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Layout, CompletableFuture<DistanceTable>> eldest){
+                    return size() > CACHED_LAYOUTS;
+                }
+            };
+
+    private static final class Layout {
+        private final int width;
+        private final boolean[] obstacles;
+        private final int hash;
+
+        private Layout(int width, boolean[] obstacles){
+            this.width = width;
+            this.obstacles = obstacles;
+            this.hash = 31 * width + Arrays.hashCode(obstacles);
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Layout)){
+                return false;
+            }
+            Layout other = (Layout) o;
+            return width == other.width && Arrays.equals(obstacles, other.obstacles);
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int cellCount;
+    private final boolean[] obstacles;
+    private final int centre;
+    private byte[] near;
+    private short[] far;
+    private long buildNanos;
+
+    private final CompletableFuture<DistanceTable> result = new CompletableFuture<>();
+
+    private DistanceTable(int width, int height, boolean[] obstacles){
+        this.width = width;
+        this.height = height;
+        this.cellCount = width * height;
+        this.obstacles = obstacles;
+        this.centre = findCentre();
+    }
+
+    public static boolean supports(SnakeState state){
+        return state.getMapWidth() * state.getMapHeight() <= MAX_CELLS;
+    }
+
+    /**
+     * The table for the map of the given state, built in the background unless it was
+     * built or asked for before. Completes with null if the map is too large for one.
+     */
+    public static CompletableFuture<DistanceTable> forMap(SnakeState state){
+        return forMap(state, BUILDER);
+    }
+
+    /**
+     * The table for the map of the given state, built on this thread unless it was built
+     * or asked for before. Returns null if the map is too large for one.
+     */
+    public static DistanceTable build(SnakeState state){
+        return forMap(state, Runnable::run).join();
+    }
+
+    /**
+     * A table for the map of the given state, built on this thread and not shared, so it
+     * never takes the place of a real map's table. Returns null if the map is too large
+     * for one.
+     */
+    public static DistanceTable buildUnshared(SnakeState state){
+        if(!supports(state)){
+            return null;
+        }
+        DistanceTable table = new DistanceTable(state.getMapWidth(), state.getMapHeight(), obstaclesOf(state));
+        table.searchAll();
+        return table.result.join();
+    }
+
+    private static CompletableFuture<DistanceTable> forMap(SnakeState state, Executor executor){
+        int width = state.getMapWidth();
+        int height = state.getMapHeight();
+        if(!supports(state)){
+            LOGGER.debug("No distance table for {}x{}, more than {} cells", width, height, MAX_CELLS);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        boolean[] obstacles = obstaclesOf(state);
+        Layout layout = new Layout(width, obstacles);
+        DistanceTable table;
+        synchronized (TABLES){
+            CompletableFuture<DistanceTable> cached = TABLES.get(layout);
+            if(cached != null){
+                return cached;
+            }
+            table = new DistanceTable(width, height, obstacles);
+            TABLES.put(layout, table.result);
+        }
+        table.result.whenComplete((built, failure) -> {
+            if(failure != null){
+                synchronized (TABLES){
+                    TABLES.remove(layout, table.result);
+                }
+            }
+        });
+        executor.execute(table::searchAll);
+        return table.result;
+    }
+
+    private static boolean[] obstaclesOf(SnakeState state){
+        boolean[] obstacles = new boolean[state.getMapWidth() * state.getMapHeight()];
+        for(int cell = 0; cell < obstacles.length; cell++){
+            obstacles[cell] = state.isObstacle(cell);
+        }
+        return obstacles;
+    }
+
+    /**
+     * The number of moves from one cell to another, or {@link #UNREACHABLE}.
+     */
+    public int distance(int from, int to){
+        if(near != null){
+            int d = near[from * cellCount + to] & 0xFF;
+            return d == NEAR_UNREACHABLE ? UNREACHABLE : d;
+        }
+        return far[from * cellCount + to];
+    }
+
+    /**
+     * The free cell closest to the middle of the map.
+     */
+    public int getCentre(){
+        return centre;
+    }
+
+    /**
+     * Whether the given state is on the map this table was built for.
+     */
+    public boolean matches(SnakeState state){
+        if(state.getMapWidth() != width || state.getMapHeight() != height){
+            return false;
+        }
+        for(int cell = 0; cell < cellCount; cell++){
+            if(state.isObstacle(cell) != obstacles[cell]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBuildNanos(){
+        return buildNanos;
+    }
+
+    public long getBytes(){
+        return near != null ? near.length : 2L * far.length;
+    }
+
+    private void searchAll(){
+        try {
+            long start = System.nanoTime();
+            short[] distances = new short[cellCount * cellCount];
+            int[] dist = new int[cellCount];
+            int[] queue = new int[cellCount];
+            int longest = 0;
+            for(int source = 0; source < cellCount; source++){
+                longest = Math.max(longest, search(source, dist, queue));
+                int row = source * cellCount;
+                for(int cell = 0; cell < cellCount; cell++){
+                    distances[row + cell] = (short) (dist[cell] < 0 ? UNREACHABLE : dist[cell]);
+                }
+            }
+            pack(distances, longest);
+            buildNanos = System.nanoTime() - start;
+        } catch (RuntimeException | OutOfMemoryError e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        if(LOGGER.isDebugEnabled()){
+            LOGGER.debug("Distance table for {}x{} built in {} ms, {} KB", width, height,
+                    TimeUnit.NANOSECONDS.toMillis(buildNanos), getBytes() / 1024);
+        }
+        result.complete(this);
+    }
+
+    private void pack(short[] distances, int longest){
+        if(longest < NEAR_UNREACHABLE){
+            byte[] bytes = new byte[distances.length];
+            for(int i = 0; i < distances.length; i++){
+                bytes[i] = (byte) Math.min(distances[i], NEAR_UNREACHABLE);
+            }
+            near = bytes;
+        } else {
+            //A winding map, keep the shorts
+            far = distances;
+        }
+    }
+
+    //Breadth first search from the source, -1 for cells it cannot reach. Returns the longest distance found.
+    private int search(int source, int[] dist, int[] queue){
+        Arrays.fill(dist, -1);
+        if(obstacles[source]){
+            return 0;
+        }
+        dist[source] = 0;
+        queue[0] = source;
+        int head = 0;
+        int tail = 1;
+        int longest = 0;
+        while(head < tail){
+            int cell = queue[head++];
+            int next = dist[cell] + 1;
+            int x = cell % width;
+            if(x > 0){
+                tail = visit(cell - 1, next, dist, queue, tail);
+            }
+            if(x < width - 1){
+                tail = visit(cell + 1, next, dist, queue, tail);
+            }
+            if(cell >= width){
+                tail = visit(cell - width, next, dist, queue, tail);
+            }
+            if(cell < cellCount - width){
+                tail = visit(cell + width, next, dist, queue, tail);
+            }
+            longest = next - 1;
+        }
+        return longest;
+    }
+
+    private int visit(int cell, int d, int[] dist, int[] queue, int tail){
+        if(dist[cell] < 0 && !obstacles[cell]){
+            dist[cell] = d;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+
+    private int findCentre(){
+        int middleX = width / 2;
+        int middleY = height / 2;
+        int best = middleX + middleY * width;
+        int bestDistance = Integer.MAX_VALUE;
+        for(int cell = 0; cell < cellCount; cell++){
+            int d = Math.abs(cell % width - middleX) + Math.abs(cell / width - middleY);
+            if(!obstacles[cell] && d < bestDistance){
+                best = cell;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,92 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hooks for the Java Flight Recorder events of the engine. The JFR events live in the
+ * separate jfr source set, since jdk.jfr is not part of every Java 8 runtime, and are
+ * loaded by name when that set is on the classpath. Without it every hook is a no-op
+ * and {@link #isEnabled(int)} is always false, so callers skip their timing as well.
+ *
+ * An event is begun with {@link #begin(int)} where its timed section starts, so that it
+ * lines up with the JVM's own events on the recording's timeline, and is handed back to
+ * its hook to be committed where the section ends. Begin returns null for a kind that is
+ * not being recorded, and the hooks accept that.
+ *
+ * {@link #get()} is a constant, so the JIT removes disabled hooks from the decision path.
+ * Set {@code -Dsnake.jfrEvents=false} to leave the events out even when they are present.
+ */
+public class EngineEvents {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngineEvents.class);
+
+    public static final int DECISION = 0;
+    public static final int ROOT_SEARCH = 1;
+    public static final int OPEN_SPACES = 2;
+    public static final int COLLISION_RISK = 3;
+
+    private static final String JFR_EVENTS_CLASS = "se.cygni.snake.JfrEngineEvents";
+
+    private static final EngineEvents EVENTS = load();
+
+    public static EngineEvents get(){
+        return EVENTS;
+    }
+
+    private static EngineEvents load(){
+        if(!Boolean.parseBoolean(System.getProperty("snake.jfrEvents", "true"))){
+            return new EngineEvents();
+        }
+        try {
+            return (EngineEvents) Class.forName(JFR_EVENTS_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return new EngineEvents();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("Could not load the JFR events, recording without them", e);
+            return new EngineEvents();
+        }
+    }
+
+    /**
+     * Whether events of the given kind are being recorded right now.
+     */
+    public boolean isEnabled(int kind){
+        return false;
+    }
+
+    /**
+     * Starts the clock of an event of the given kind, or returns null if none is recorded.
+     */
+    public Object begin(int kind){
+        return null;
+    }
+
+    /**
+     * A whole tick, from the map update arriving to the move being sent.
+     */
+    public void decision(Object event, long gameTick, int depthReached, long nodes, long cellsFlooded,
+                         Direction direction){
+    }
+
+    /**
+     * The deep search of one root move, or its lookup in the evaluation cache.
+     */
+    public void rootSearch(Object event, long gameTick, int depthReached, long nodes, long cellsFlooded,
+                           Direction direction, int value){
+    }
+
+    /**
+     * One open space count, {@code ply} moves after the board.
+     */
+    public void openSpaces(Object event, long gameTick, int ply, long cellsFlooded, Direction direction,
+                           int openSpaces){
+    }
+
+    /**
+     * The pass over the collision risk that may change the chosen move. The risk of each
+     * root move was worked out earlier, while screening, and took {@code screenNanos}.
+     */
+    public void collisionRisk(Object event, long gameTick, long screenNanos, Direction direction, int risk){
+    }
+}
@@ -0,0 +1,160 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the decision pipeline on synthetic boards before the first real tick, so the
+ * hot methods are already JIT compiled when a game starts.
+ *
+ * There is no portable way to ask whether a given method has reached tier 4, so we
+ * keep going until the JIT has been idle for a number of iterations in a row, or the
+ * time budget is spent. The JIT is shared by the whole JVM, so each board size is only
+ * warmed up once no matter how many bots are hosted.
+ *
+ * The warm-up engine is set up like the ones that play: the same weights, an evaluation
+ * cache if they have one, and a distance table on every other board, since a game
+ * starts without one until it is built. The cache and the table are private to the
+ * warm-up, so its synthetic boards never take the place of real ones. Clients start it
+ * with {@link #warmInBackground} so the transport thread is never held up, and
+ * {@link #stop} it once ticks arrive, so it doesn't take CPU from a real decision.
+ */
+public class EngineWarmup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngineWarmup.class);
+
+    private static final int QUIET_ITERATIONS_NEEDED = 50;
+    private static final int MIN_ITERATIONS = 200;
+    private static final int WARMUP_FOES = 4;
+    private static final int WARMUP_CACHE_MB = 1;
+
+    private static final Set<String> warmedSizes = new HashSet<>();
+
+    private static final ExecutorService warmupThread = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "Engine warm-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile long coldStartNanos = -1;
+    private static volatile boolean stopRequested;
+    private static volatile SnakeEngine runningEngine;
+
+    private EngineWarmup(){
+    }
+
+    /**
+     * Runs {@link #ensureWarm} on the warm-up thread and returns at once.
+     */
+    public static void warmInBackground(int width, int height, int maxSearchDepth, EngineWeights weights,
+                                        boolean withEvaluationCache, long budgetMillis){
+        if(budgetMillis <= 0){
+            return;
+        }
+        stopRequested = false;
+        warmupThread.execute(() -> ensureWarm(width, height, maxSearchDepth, weights, withEvaluationCache, budgetMillis));
+    }
+
+    /**
+     * Ends a running warm-up early, and skips one that hasn't started yet.
+     */
+    public static void stop(){
+        stopRequested = true;
+        SnakeEngine engine = runningEngine;
+        if(engine != null){
+            engine.cancel();
+        }
+    }
+
+    /**
+     * Warms up the engine for boards of the given size unless that has already been done.
+     */
+    public static void ensureWarm(int width, int height, int maxSearchDepth, EngineWeights weights,
+                                  boolean withEvaluationCache, long budgetMillis){
+        if(budgetMillis <= 0 || stopRequested || !markWarmed(width + "x" + height)){
+            return;
+        }
+
+        long start = System.nanoTime();
+        SyntheticBoards boards = new SyntheticBoards(width, height, 4711);
+        boards.next(WARMUP_FOES);
+        //The build can't be cancelled, so it is skipped if a game has already started
+        DistanceTable distances = stopRequested ? null : DistanceTable.buildUnshared(boards.getState());
+        SnakeEngine engine = new SnakeEngine(maxSearchDepth, weights,
+                withEvaluationCache ? EvaluationCache.inMemory(WARMUP_CACHE_MB) : null);
+        runningEngine = engine;
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean canMonitorJit = jit != null && jit.isCompilationTimeMonitoringSupported();
+
+        long end = start + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        long firstIteration = -1;
+        long lastIteration = 0;
+        long lastJitTime = canMonitorJit ? jit.getTotalCompilationTime() : 0;
+        int quietIterations = 0;
+        int iterations = 0;
+
+        while(System.nanoTime() < end && !stopRequested){
+            if(iterations > 0){
+                boards.nextOnSameMap(WARMUP_FOES);
+            }
+            engine.setDistanceTable(iterations % 2 == 0 ? distances : null);
+            long iterationStart = System.nanoTime();
+            engine.getBestPossibleDirection(boards.getState(), end);
+            lastIteration = System.nanoTime() - iterationStart;
+            if(firstIteration < 0){
+                firstIteration = lastIteration;
+            }
+            iterations++;
+
+            if(canMonitorJit){
+                long jitTime = jit.getTotalCompilationTime();
+                quietIterations = jitTime == lastJitTime ? quietIterations + 1 : 0;
+                lastJitTime = jitTime;
+                if(iterations >= MIN_ITERATIONS && quietIterations >= QUIET_ITERATIONS_NEEDED){
+                    break;
+                }
+            }
+        }
+
+        runningEngine = null;
+        if(coldStartNanos < 0){
+            coldStartNanos = firstIteration;
+        }
+
+        LOGGER.info("Warm-up for {}x{} ran {} iterations in {} ms, JIT {}: first iteration {} ms, last {} ms",
+                width, height, iterations, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                stopRequested ? "stopped by a game" : quietIterations >= QUIET_ITERATIONS_NEEDED ? "settled" : "still compiling",
+                nanosToMillis(firstIteration), nanosToMillis(lastIteration));
+    }
+
+    /**
+     * Logs how long the first real tick took compared to a decision on a cold JVM.
+     */
+    public static void reportFirstTick(long firstTickNanos){
+        long coldStartNanos = EngineWarmup.coldStartNanos;
+        if(coldStartNanos < 0){
+            LOGGER.info("First tick took {} ms without warm-up", nanosToMillis(firstTickNanos));
+        } else {
+            LOGGER.info("First tick took {} ms, a cold decision took {} ms",
+                    nanosToMillis(firstTickNanos), nanosToMillis(coldStartNanos));
+        }
+    }
+
+    private static boolean markWarmed(String size){
+        synchronized (warmedSizes){
+            return warmedSizes.add(size);
+        }
+    }
+
+    private static String nanosToMillis(long nanos){
+        return String.format("%.2f", nanos / 1e6);
+    }
+}
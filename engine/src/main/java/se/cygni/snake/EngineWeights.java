@@ -0,0 +1,178 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The scoring constants of the engine as one weight vector, so they can be tuned
+ * instead of hand-picked. The defaults are the values the bot has always used.
+ *
+ * Weights are saved as a properties file with one entry per weight name.
+ */
+public class EngineWeights {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngineWeights.class);
+
+    public static final int FOOD_VALUE = 0;
+    public static final int KILL_VALUE = 1;
+    public static final int HEAD_FREE_WINDOW = 2;
+    public static final int FOOD_WINDOW = 3;
+    public static final int MIDDLE_WINDOW = 4;
+    public static final int KILL_WINDOW = 5;
+    public static final int COLLISION_SEARCH_THRESHOLD = 6;
+    public static final int HIGH_RISK_WEIGHT = 7;
+    public static final int TIGHT_REGION_FACTOR = 8;
+    public static final int REGION_SCREEN = 9;
+    public static final int DANGER_SCREEN = 10;
+
+    public static final String[] NAMES = {
+            "foodValue", "killValue", "headFreeWindow", "foodWindow", "middleWindow", "killWindow",
+            "collisionSearchThreshold", "highRiskWeight", "tightRegionFactor", "regionScreen",
+            "dangerScreen"
+    };
+
+    private static final double[] DEFAULTS = {15, 55, 10, 20, 2, 10, 0.6, 3, 0, 0.5, 0};
+
+    private final double[] values;
+
+    public EngineWeights(double[] values){
+        if(values.length != NAMES.length){
+            throw new IllegalArgumentException("Expected " + NAMES.length + " weights, got " + values.length);
+        }
+        this.values = values.clone();
+    }
+
+    public static EngineWeights defaults(){
+        return new EngineWeights(DEFAULTS);
+    }
+
+    /**
+     * Loads weights from the given file, falling back to the defaults for a missing or
+     * unreadable file, and for missing entries.
+     */
+    public static EngineWeights loadOrDefault(File file){
+        double[] values = DEFAULTS.clone();
+        if(file == null || !file.isFile()){
+            return new EngineWeights(values);
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read weights from {}, using defaults", file);
+            return new EngineWeights(values);
+        }
+
+        for(int i = 0; i < NAMES.length; i++){
+            String value = properties.getProperty(NAMES[i]);
+            if(value != null){
+                try {
+                    values[i] = Double.parseDouble(value.trim());
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Could not read weight {}={} from {}, using defaults", NAMES[i], value, file);
+                    return defaults();
+                }
+            }
+        }
+        LOGGER.info("Loaded engine weights from {}: {}", file, Arrays.toString(values));
+        return new EngineWeights(values);
+    }
+
+    public void save(File file, String comment) throws IOException {
+        Properties properties = new Properties();
+        for(int i = 0; i < NAMES.length; i++){
+            properties.setProperty(NAMES[i], Double.toString(values[i]));
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            properties.store(out, comment);
+        }
+        if(!tmp.renameTo(file)){
+            file.delete();
+            if(!tmp.renameTo(file)){
+                throw new IOException("Could not replace " + file);
+            }
+        }
+    }
+
+    public double[] toVector(){
+        return values.clone();
+    }
+
+    public static double getDefault(int index){
+        return DEFAULTS[index];
+    }
+
+    public int getFoodValue(){
+        return (int) Math.round(values[FOOD_VALUE]);
+    }
+
+    public int getKillValue(){
+        return (int) Math.round(values[KILL_VALUE]);
+    }
+
+    public int getHeadFreeWindow(){
+        return (int) Math.round(values[HEAD_FREE_WINDOW]);
+    }
+
+    public int getFoodWindow(){
+        return (int) Math.round(values[FOOD_WINDOW]);
+    }
+
+    public int getMiddleWindow(){
+        return (int) Math.round(values[MIDDLE_WINDOW]);
+    }
+
+    public int getKillWindow(){
+        return (int) Math.round(values[KILL_WINDOW]);
+    }
+
+    public double getCollisionSearchThreshold(){
+        return values[COLLISION_SEARCH_THRESHOLD];
+    }
+
+    public int getHighRiskWeight(){
+        return (int) Math.round(values[HIGH_RISK_WEIGHT]);
+    }
+
+    /**
+     * Regions smaller than this many times our length are counted tail aware, see
+     * {@link FloodFill}. Zero turns tail aware counting off.
+     */
+    public double getTightRegionFactor(){
+        return values[TIGHT_REGION_FACTOR];
+    }
+
+    /**
+     * Moves into a region smaller than this fraction of the largest region next to our
+     * head are screened out before the deep search. Zero turns the region screen off.
+     */
+    public double getRegionScreen(){
+        return values[REGION_SCREEN];
+    }
+
+    /**
+     * Moves with at least this collision risk are screened out before the deep search,
+     * as long as a move with less risk is left. Zero turns the danger screen off.
+     */
+    public int getDangerScreen(){
+        return (int) Math.round(values[DANGER_SCREEN]);
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < NAMES.length; i++){
+            if(i > 0){
+                sb.append(", ");
+            }
+            sb.append(NAMES[i]).append('=').append(String.format("%.3f", values[i]));
+        }
+        return sb.toString();
+    }
+}
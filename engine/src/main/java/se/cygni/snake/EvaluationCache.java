@@ -0,0 +1,179 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Search results of root positions, kept in a memory mapped file so they survive
+ * between games and process restarts. Keys are {@link PositionHash} values.
+ *
+ * The file is a 64 byte header followed by fixed size slots. A key is looked up in a
+ * bucket of {@link #BUCKET_SLOTS} consecutive slots, and a store into a full bucket
+ * overwrites the slot the key hashes to, so the file never grows.
+ *
+ * Nothing is locked. Every slot carries a check word computed from its key and values,
+ * and a read only counts as a hit if the check word matches, so a slot torn by a
+ * concurrent write (from another thread, or another process on the same file) reads
+ * as a miss. Shared by all engines in the JVM that use the same file.
+ */
+public class EvaluationCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EvaluationCache.class);
+
+    public static final int VALUE_COUNT = 6;
+
+    private static final long MAGIC = 0x536E616B65457643L;
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 64;
+    //Key, values and check word, padded to 8 bytes
+    private static final int SLOT_BYTES = 8 + 4 * VALUE_COUNT + 4 + 4;
+    private static final int CHECK_OFFSET = 8 + 4 * VALUE_COUNT;
+    private static final int BUCKET_SLOTS = 4;
+
+    private static final HashMap<String, EvaluationCache> openCaches = new HashMap<>();
+
+    private final ByteBuffer buffer;
+    private final int slotCount;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    private EvaluationCache(ByteBuffer buffer, int slotCount){
+        this.buffer = buffer;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Opens the cache file, creating it with room for about {@code sizeMb} megabytes of
+     * slots if needed. A file written with another layout is cleared.
+     */
+    public static synchronized EvaluationCache open(File file, int sizeMb) throws IOException {
+        String path = file.getCanonicalPath();
+        EvaluationCache cache = openCaches.get(path);
+        if(cache != null){
+            return cache;
+        }
+
+        int slotCount = slotsFor(sizeMb);
+        long size = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            boolean fresh = raf.length() != size;
+            raf.setLength(size);
+            //The mapping stays valid after the channel is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if(fresh || buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION || buffer.getInt(12) != slotCount){
+                for(long i = HEADER_BYTES; i < size; i += 8){
+                    buffer.putLong((int) i, 0);
+                }
+                buffer.putInt(8, VERSION);
+                buffer.putInt(12, slotCount);
+                buffer.putLong(0, MAGIC);
+                LOGGER.info("Created evaluation cache {} with {} slots", file, slotCount);
+            } else {
+                LOGGER.info("Opened evaluation cache {} with {} slots", file, slotCount);
+            }
+        }
+
+        cache = new EvaluationCache(buffer, slotCount);
+        openCaches.put(path, cache);
+        return cache;
+    }
+
+    /**
+     * A cache of about {@code sizeMb} megabytes that only lives in memory, for engines
+     * whose results should not be kept, like the warm-up's.
+     */
+    public static EvaluationCache inMemory(int sizeMb){
+        int slotCount = slotsFor(sizeMb);
+        //Direct like the mapped buffer of a file, so the same buffer code gets compiled
+        return new EvaluationCache(ByteBuffer.allocateDirect(HEADER_BYTES + slotCount * SLOT_BYTES), slotCount);
+    }
+
+    /**
+     * Copies the values stored for the key into {@code values} and returns true, or
+     * returns false if the key is not in the cache.
+     */
+    public boolean get(long key, int[] values){
+        int first = bucketStart(key);
+        for(int i = 0; i < BUCKET_SLOTS; i++){
+            int offset = offset(first + i);
+            if(buffer.getLong(offset) != key){
+                continue;
+            }
+            for(int v = 0; v < VALUE_COUNT; v++){
+                values[v] = buffer.getInt(offset + 8 + 4 * v);
+            }
+            if(buffer.getInt(offset + CHECK_OFFSET) == check(key, values) && buffer.getLong(offset) == key){
+                hits.increment();
+                return true;
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    public void put(long key, int[] values){
+        int first = bucketStart(key);
+        int target = -1;
+        for(int i = 0; i < BUCKET_SLOTS && target < 0; i++){
+            long stored = buffer.getLong(offset(first + i));
+            if(stored == key || stored == 0){
+                target = first + i;
+            }
+        }
+        if(target < 0){
+            target = first + (int) ((key >>> 32) & (BUCKET_SLOTS - 1));
+        }
+
+        //The old key goes first, so a reader sees either a miss or a failed check until the slot is complete
+        int offset = offset(target);
+        buffer.putLong(offset, 0);
+        for(int v = 0; v < VALUE_COUNT; v++){
+            buffer.putInt(offset + 8 + 4 * v, values[v]);
+        }
+        buffer.putInt(offset + CHECK_OFFSET, check(key, values));
+        buffer.putLong(offset, key);
+        stores.increment();
+    }
+
+    public String getStats(){
+        long h = hits.sum();
+        long m = misses.sum();
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d stores, %d slots",
+                h, m, h + m == 0 ? 0 : 100.0 * h / (h + m), stores.sum(), slotCount);
+    }
+
+    private static int slotsFor(int sizeMb){
+        int slotCount = (int) Math.min((Integer.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES, (long) sizeMb * 1024 * 1024 / SLOT_BYTES);
+        return Math.max(BUCKET_SLOTS, slotCount - slotCount % BUCKET_SLOTS);
+    }
+
+    private int bucketStart(long key){
+        int buckets = slotCount / BUCKET_SLOTS;
+        return (int) Long.remainderUnsigned(key, buckets) * BUCKET_SLOTS;
+    }
+
+    private static int offset(int slot){
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static int check(long key, int[] values){
+        long hash = key;
+        for(int v = 0; v < VALUE_COUNT; v++){
+            hash = PositionHash.mix(hash + values[v]);
+        }
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,200 @@
+package se.cygni.snake;
+
+import java.util.Arrays;
+
+/**
+ * Scratch buffers for counting open spaces. A fill marks cells with the current
+ * generation number instead of clearing a visited set, so it does not allocate.
+ * Not thread safe, every engine owns its own.
+ *
+ * Tails retract on a known schedule, so a body cell is only in the way until some
+ * tick. {@link #scheduleReleases(SnakeState)} works out once per tick, from the body
+ * index and lifeTime of every snake, when each body cell of the current board can be
+ * entered. A timed count then also reaches body cells that are free by the time we
+ * can get there, counting every cell at its earliest arrival.
+ *
+ * Plain counts on boards of up to 64 columns go to {@link BitFloodFill}, which fills
+ * whole rows at a time.
+ */
+public class FloodFill {
+
+    private static final int NEVER = 0;
+
+    private final int[] visited;
+    private final int[] queue;
+    private final int[] arrival;
+    private int generation;
+    private double tightRegionFactor;
+    private long cellsFlooded;
+    private final BitFloodFill rows = new BitFloodFill();
+
+    //Tick, counted from the scheduled board, at which a body cell can first be entered, NEVER if it is not a body cell
+    private final int[] release;
+    private final int[] releasedCells;
+    private int releasedCount;
+
+    public FloodFill(int cellCount){
+        this.visited = new int[cellCount];
+        this.queue = new int[cellCount];
+        this.arrival = new int[cellCount];
+        this.release = new int[cellCount];
+        this.releasedCells = new int[cellCount];
+    }
+
+    /**
+     * Open spaces are counted tail aware once the plain count is below this many
+     * times our length. Zero, the default, always counts body cells as walls.
+     */
+    public void setTightRegionFactor(double tightRegionFactor){
+        this.tightRegionFactor = tightRegionFactor;
+    }
+
+    public boolean isTight(SnakeState state, int openSpaces){
+        return openSpaces < tightRegionFactor * state.getSelf().getLength();
+    }
+
+    /**
+     * The open spaces around a cell we reach on the next tick, as used by
+     * {@link SnakeState#getOpenSpacesinDir}. Small regions are counted again tail aware.
+     */
+    public int countOpenSpaces(SnakeState state, int cell){
+        int openSpaces = countAround(state, cell);
+        if(isTight(state, openSpaces)){
+            openSpaces = countAroundTimed(state, cell, 1);
+        }
+        return openSpaces;
+    }
+
+    public boolean fits(SnakeState state){
+        return visited.length == state.getMapWidth() * state.getMapHeight();
+    }
+
+    /**
+     * Works out when the body cells of the given board free up. A retraction happens on
+     * every tick except every third, the same schedule as in {@link Snake}, assuming
+     * nobody eats. A cell is free to enter on the tick after its retraction.
+     */
+    public void scheduleReleases(SnakeState state){
+        for(int i = 0; i < releasedCount; i++){
+            release[releasedCells[i]] = NEVER;
+        }
+        releasedCount = 0;
+
+        scheduleReleases(state.getSelf());
+        for(int i = 0; i < state.getFoeCount(); i++){
+            scheduleReleases(state.getFoe(i));
+        }
+    }
+
+    private void scheduleReleases(Snake snake){
+        int length = snake.getLength();
+        long lifeTime = snake.getLifeTime();
+        int tick = 0;
+        //The tail, index length - 1, goes with the first retraction and the head with the last
+        for(int i = length - 1; i >= 0; i--){
+            do {
+                tick++;
+            } while((lifeTime + tick - 1) % 3 == 0);
+            int cell = snake.getCell(i);
+            if(release[cell] == NEVER){
+                releasedCells[releasedCount++] = cell;
+            }
+            release[cell] = Math.max(release[cell], tick + 1);
+        }
+    }
+
+    /**
+     * Counts the free cells reachable from the free neighbours of the given cell. The
+     * cell itself is only counted if it is free and can be reached back from one of them.
+     */
+    public int countAround(SnakeState state, int cell){
+        if(BitFloodFill.supports(state)){
+            int openSpaces = rows.countAround(state, cell);
+            cellsFlooded += openSpaces;
+            return openSpaces;
+        }
+        return count(state, cell, -1);
+    }
+
+    //The cell by cell fill of countAround, for wider boards
+    int countAroundScalar(SnakeState state, int cell){
+        return count(state, cell, -1);
+    }
+
+    /**
+     * Same as {@link #countAround(SnakeState, int)}, but we get to the given cell at tick
+     * {@code arrivalTick} of the state, and body cells that have retracted by the time we
+     * reach them count as free.
+     */
+    public int countAroundTimed(SnakeState state, int cell, int arrivalTick){
+        return count(state, cell, arrivalTick);
+    }
+
+    //A negative arrival tick counts every body cell as a wall
+    private int count(SnakeState state, int cell, int arrivalTick){
+        int width = state.getMapWidth();
+        int cellCount = visited.length;
+
+        generation++;
+        if(generation == 0){
+            Arrays.fill(visited, 0);
+            generation = 1;
+        }
+
+        //Release ticks count from the scheduled board, the state may be some plies further
+        int offset = state.getAge();
+        int tail = 0;
+        tail = visit(state, cell, arrivalTick < 0 ? -1 : arrivalTick + 1, offset, width, cellCount, tail);
+
+        int head = 0;
+        while(head < tail){
+            int current = queue[head++];
+            tail = visit(state, current, arrivalTick < 0 ? -1 : arrival[current] + 1, offset, width, cellCount, tail);
+        }
+        cellsFlooded += tail;
+        return tail;
+    }
+
+    /**
+     * The cells reached by all counts so far.
+     */
+    public long getCellsFlooded(){
+        return cellsFlooded;
+    }
+
+    private int visit(SnakeState state, int cell, int tick, int offset, int width, int cellCount, int tail){
+        int x = cell % width;
+        if(x > 0){
+            tail = offer(state, cell - 1, tick, offset, tail);
+        }
+        if(x < width - 1){
+            tail = offer(state, cell + 1, tick, offset, tail);
+        }
+        if(cell >= width){
+            tail = offer(state, cell - width, tick, offset, tail);
+        }
+        if(cell + width < cellCount){
+            tail = offer(state, cell + width, tick, offset, tail);
+        }
+        return tail;
+    }
+
+    //A cell turned away as still occupied may be offered again later, from a neighbour reached later
+    private int offer(SnakeState state, int cell, int tick, int offset, int tail){
+        if(visited[cell] != generation && (!state.isBlocked(cell) || isReleased(cell, tick, offset))){
+            visited[cell] = generation;
+            arrival[cell] = tick;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+
+    /**
+     * A blocked cell can be entered if it is still the body cell we scheduled, and it has
+     * retracted by then. Cells that were released before this state are taken by something new.
+     */
+    private boolean isReleased(int cell, int tick, int offset){
+        int releaseTick = release[cell];
+        return tick >= 0 && releaseTick != NEVER && releaseTick - 1 > offset && tick + offset >= releaseTick;
+    }
+}
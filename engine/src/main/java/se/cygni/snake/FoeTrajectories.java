@@ -0,0 +1,72 @@
+package se.cygni.snake;
+
+import java.util.Arrays;
+
+/**
+ * The predicted foe moves of a tick, rolled out once up to the search horizon instead
+ * of at every ply of every branch. Depth d holds every foe after d predicted moves, so
+ * its head cell, released tail and the foe occupancy of the whole board, and the move
+ * each foe makes next.
+ *
+ * A foe's move is judged from the state before it, and our snake only takes part
+ * through the cells it blocks and, for a foe that has to turn, through where our head
+ * is. The table is rolled out with our snake standing still on its current cells. A
+ * ply checks the moves against the table, which is a few neighbour lookups per foe, and
+ * while every foe agrees it shares the foes and occupancy of the table. Once a move
+ * differs, that branch simulates its foes from there on.
+ *
+ * The states are allocated once per board size and reused between ticks.
+ */
+public class FoeTrajectories {
+
+    private final int maxDepth;
+    //depths[0] is the board the table was rolled out from, the others are owned by the table
+    private final SnakeState[] depths;
+    //moves[d][i] takes foe i from depth d to depth d + 1, null when it gets trapped
+    private final Direction[][] moves;
+
+    /**
+     * A table for boards of the given size, covering plies up to {@code maxDepth} moves
+     * after the board.
+     */
+    public FoeTrajectories(int width, int height, int maxDepth, int foeCapacity){
+        this.maxDepth = maxDepth;
+        this.depths = new SnakeState[maxDepth + 1];
+        this.moves = new Direction[maxDepth][foeCapacity];
+        for(int d = 1; d <= maxDepth; d++){
+            depths[d] = new SnakeState(height, width, foeCapacity);
+        }
+    }
+
+    /**
+     * Rolls out the foes of the given board and attaches the table to it, so the future
+     * states created from it use the table.
+     */
+    public void build(SnakeState board){
+        depths[0] = board;
+        for(int d = 0; d < maxDepth; d++){
+            SnakeState from = depths[d];
+            if(moves[d].length < from.getFoeCount()){
+                moves[d] = Arrays.copyOf(moves[d], from.getFoeCount());
+            }
+            from.createFoeFutureState(depths[d + 1], moves[d]);
+        }
+        board.setTrajectories(this);
+    }
+
+    //Whether a state the given number of plies after the board can share the table
+    boolean covers(int depth){
+        return depth <= maxDepth;
+    }
+
+    Direction getMove(int depth, int foe){
+        return moves[depth][foe];
+    }
+
+    //Lets the future state share the foes of the given depth
+    void attach(SnakeState futureState, int depth){
+        SnakeState predicted = depths[depth];
+        futureState.shareFoes(predicted.getFoes(), predicted.getFoeCount(), predicted.getFoeCells(),
+                predicted.getIsKilledFoeState());
+    }
+}
@@ -0,0 +1,65 @@
+package se.cygni.snake;
+
+/**
+ * 64-bit hashes of boards. Only depends on the board itself, not on tables filled in
+ * at startup, so a hash stays valid across process restarts.
+ *
+ * Obstacles and food are hashed once per tick with {@link #hashBoard}, the snakes once
+ * per position with {@link #hashPosition}. Only what the search looks at is hashed: the
+ * tail schedule of a snake depends on its lifeTime modulo 3 only.
+ */
+public final class PositionHash {
+
+    private static final long OBSTACLE = 0x9E3779B97F4A7C15L;
+    private static final long FOOD = 0xC2B2AE3D27D4EB4FL;
+    private static final long SELF = 0x165667B19E3779F9L;
+    private static final long FOE = 0x27D4EB2F165667C5L;
+    private static final long KILLED = 0x85EBCA77C2B2AE63L;
+
+    private PositionHash(){
+    }
+
+    public static long hashBoard(SnakeState state, long salt){
+        int cells = state.getMapWidth() * state.getMapHeight();
+        long hash = mix(salt ^ state.getMapWidth() * 31L ^ state.getMapHeight());
+        for(int cell = 0; cell < cells; cell++){
+            if(state.isObstacle(cell)){
+                hash = mix(hash ^ OBSTACLE + cell);
+            }
+            if(state.isFood(cell)){
+                hash = mix(hash ^ FOOD + cell);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Combines the board hash with the snakes of the given state. Never returns 0.
+     */
+    public static long hashPosition(SnakeState state, long boardHash){
+        long hash = hashSnake(boardHash ^ SELF, state.getSelf());
+        for(int i = 0; i < state.getFoeCount(); i++){
+            hash = hashSnake(hash ^ FOE + i, state.getFoe(i));
+        }
+        if(state.getIsKilledFoeState()){
+            hash = mix(hash ^ KILLED);
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long hashSnake(long hash, Snake snake){
+        hash = mix(hash + snake.getLifeTime() % 3);
+        hash = mix(hash + snake.getDir().ordinal());
+        for(int i = 0; i < snake.getLength(); i++){
+            hash = mix(hash + snake.getCell(i));
+        }
+        return mix(hash + snake.getLength());
+    }
+
+    //The splitmix64 finaliser
+    public static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,399 @@
+package se.cygni.snake;
+
+import java.util.Arrays;
+
+/**
+ * Connected regions of free cells, kept up to date between ticks instead of flooded
+ * again every tick. Every free cell carries the label of its region, and the size of
+ * every region is stored, so region sizes are looked up in O(1).
+ *
+ * Between two ticks only a few cells change: new heads, retracted tails and the bodies
+ * of dead snakes. Freeing a cell merges the regions around it by relabelling the smaller
+ * ones. Taking a cell can only split its region if its free neighbours are not already
+ * connected around it. Then a flood is started from each of them in lockstep, and the
+ * floods that run out before meeting the others are the parts that broke off, so only
+ * those parts are visited.
+ *
+ * When too many cells changed, for a new game or an unrelated board, everything is
+ * labelled again from scratch. All buffers are allocated once per board size.
+ */
+public class RegionTracker {
+
+    //More changed cells than this and a full relabel is cheaper
+    private static final int MAX_INCREMENTAL_CHANGES = 64;
+    private static final int NO_REGION = 0;
+
+    private final int width;
+    private final int cellCount;
+
+    private final boolean[] blocked;
+    private final int[] label;
+    private final int[] regionSize;
+    private final int[] freeLabels;
+    private int freeLabelCount;
+    private boolean built;
+
+    private final int[] changed;
+
+    //Scratch for the floods, marked with generation
+    private final int[] mark;
+    private int generation;
+    private final int[][] queues;
+    private final int[] queueHead;
+    private final int[] queueTail;
+    private final int[] group;
+    private final int[] neighbours;
+
+    public RegionTracker(int width, int height){
+        this.width = width;
+        this.cellCount = width * height;
+        this.blocked = new boolean[cellCount];
+        this.label = new int[cellCount];
+        this.regionSize = new int[cellCount + 1];
+        this.freeLabels = new int[cellCount];
+        this.changed = new int[MAX_INCREMENTAL_CHANGES];
+        this.mark = new int[cellCount];
+        this.queues = new int[4][cellCount];
+        this.queueHead = new int[4];
+        this.queueTail = new int[4];
+        this.group = new int[4];
+        this.neighbours = new int[4];
+    }
+
+    public boolean fits(SnakeState state){
+        return state.getMapWidth() == width && state.getMapWidth() * state.getMapHeight() == cellCount;
+    }
+
+    /**
+     * Forgets the tracked board, the next update labels everything again.
+     */
+    public void reset(){
+        built = false;
+    }
+
+    /**
+     * Brings the regions in line with the given board.
+     */
+    public void update(SnakeState state){
+        if(!built){
+            rebuild(state);
+            return;
+        }
+
+        int changes = 0;
+        for(int cell = 0; cell < cellCount; cell++){
+            if(state.isBlocked(cell) != blocked[cell]){
+                if(changes == MAX_INCREMENTAL_CHANGES){
+                    rebuild(state);
+                    return;
+                }
+                changed[changes++] = cell;
+            }
+        }
+
+        for(int i = 0; i < changes; i++){
+            int cell = changed[i];
+            if(blocked[cell]){
+                free(cell);
+            } else {
+                take(cell);
+            }
+        }
+    }
+
+    /**
+     * Number of free cells reachable from the free neighbours of the given cell, the same
+     * count as {@link FloodFill#countAround(SnakeState, int)}.
+     */
+    public int openSpacesAround(int cell){
+        int count = collectNeighbourLabels(cell);
+        int total = 0;
+        for(int i = 0; i < count; i++){
+            total += regionSize[neighbours[i]];
+        }
+        return total;
+    }
+
+    public int getRegionSize(int cell){
+        return blocked[cell] ? 0 : regionSize[label[cell]];
+    }
+
+    private void rebuild(SnakeState state){
+        freeLabelCount = 0;
+        for(int l = cellCount; l >= 1; l--){
+            freeLabels[freeLabelCount++] = l;
+        }
+        Arrays.fill(label, NO_REGION);
+        for(int cell = 0; cell < cellCount; cell++){
+            blocked[cell] = state.isBlocked(cell);
+        }
+        for(int cell = 0; cell < cellCount; cell++){
+            if(!blocked[cell] && label[cell] == NO_REGION){
+                int newLabel = newLabel();
+                regionSize[newLabel] = relabel(cell, NO_REGION, newLabel);
+            }
+        }
+        built = true;
+    }
+
+    //A freed cell joins its neighbours' regions, the smaller ones are relabelled into the largest
+    private void free(int cell){
+        blocked[cell] = false;
+        int count = collectNeighbourLabels(cell);
+        if(count == 0){
+            label[cell] = newLabel();
+            regionSize[label[cell]] = 1;
+            return;
+        }
+
+        int largest = neighbours[0];
+        for(int i = 1; i < count; i++){
+            if(regionSize[neighbours[i]] > regionSize[largest]){
+                largest = neighbours[i];
+            }
+        }
+        for(int i = 0; i < count; i++){
+            int other = neighbours[i];
+            if(other != largest){
+                int moved = relabel(findCell(cell, other), other, largest);
+                regionSize[largest] += moved;
+                releaseLabel(other);
+            }
+        }
+        label[cell] = largest;
+        regionSize[largest]++;
+    }
+
+    private void take(int cell){
+        int oldLabel = label[cell];
+        blocked[cell] = true;
+        label[cell] = NO_REGION;
+        regionSize[oldLabel]--;
+        if(regionSize[oldLabel] == 0){
+            releaseLabel(oldLabel);
+            return;
+        }
+        if(!mightSplit(cell)){
+            return;
+        }
+        split(cell, oldLabel);
+    }
+
+    //False if the free neighbours are connected through the cells around the taken one
+    private boolean mightSplit(int cell){
+        int x = cell % width;
+        boolean up = isFree(cell, x, 0, -1);
+        boolean right = isFree(cell, x, 1, 0);
+        boolean down = isFree(cell, x, 0, 1);
+        boolean left = isFree(cell, x, -1, 0);
+        int free = (up ? 1 : 0) + (right ? 1 : 0) + (down ? 1 : 0) + (left ? 1 : 0);
+        int links = (up && right && isFree(cell, x, 1, -1) ? 1 : 0)
+                + (right && down && isFree(cell, x, 1, 1) ? 1 : 0)
+                + (down && left && isFree(cell, x, -1, 1) ? 1 : 0)
+                + (left && up && isFree(cell, x, -1, -1) ? 1 : 0);
+        //The free neighbours and the links form a ring, which is one piece once it is closed
+        int pieces = links == 4 ? 1 : free - links;
+        return pieces > 1;
+    }
+
+    private boolean isFree(int cell, int x, int dx, int dy){
+        int nx = x + dx;
+        int neighbour = cell + dx + dy * width;
+        return nx >= 0 && nx < width && neighbour >= 0 && neighbour < cellCount && !blocked[neighbour];
+    }
+
+    /**
+     * Floods from every free neighbour of the taken cell in lockstep. Floods that meet are
+     * the same piece. Once all but one piece has run out, the running one is what is left
+     * of the old region, and the pieces that ran out get labels of their own.
+     */
+    private void split(int cell, int oldLabel){
+        nextGeneration();
+        int starts = 0;
+        int x = cell % width;
+        for(int d = 0; d < 4; d++){
+            int neighbour = neighbour(cell, x, d);
+            if(neighbour >= 0 && !blocked[neighbour]){
+                queues[starts][0] = neighbour;
+                queueHead[starts] = 0;
+                queueTail[starts] = 1;
+                group[starts] = starts;
+                //Marks are generation * 4 + flood index, so a mark tells which flood got there first
+                mark[neighbour] = generation * 4 + starts;
+                starts++;
+            }
+        }
+
+        while(runningPieces(starts) > 1){
+            for(int f = 0; f < starts; f++){
+                if(queueHead[f] < queueTail[f]){
+                    stepFlood(f, starts);
+                }
+            }
+        }
+
+        int survivor = -1;
+        for(int f = 0; f < starts; f++){
+            if(isRunning(find(f), starts)){
+                survivor = find(f);
+            }
+        }
+
+        for(int f = 0; f < starts; f++){
+            int root = find(f);
+            if(root != f || root == survivor){
+                continue;
+            }
+            int newLabel = newLabel();
+            int size = 0;
+            for(int g = 0; g < starts; g++){
+                if(find(g) == root){
+                    for(int i = 0; i < queueTail[g]; i++){
+                        label[queues[g][i]] = newLabel;
+                    }
+                    size += queueTail[g];
+                }
+            }
+            regionSize[newLabel] = size;
+            regionSize[oldLabel] -= size;
+        }
+        if(survivor < 0){
+            //Every piece ran out, the old label is not used any more
+            releaseLabel(oldLabel);
+        }
+    }
+
+    private void stepFlood(int f, int starts){
+        int current = queues[f][queueHead[f]++];
+        int x = current % width;
+        int base = generation * 4;
+        for(int d = 0; d < 4; d++){
+            int neighbour = neighbour(current, x, d);
+            if(neighbour < 0 || blocked[neighbour]){
+                continue;
+            }
+            int m = mark[neighbour] - base;
+            if(m >= 0 && m < 4){
+                union(f, m);
+            } else {
+                mark[neighbour] = base + f;
+                queues[f][queueTail[f]++] = neighbour;
+            }
+        }
+    }
+
+    private int runningPieces(int starts){
+        int running = 0;
+        for(int f = 0; f < starts; f++){
+            if(find(f) == f && isRunning(f, starts)){
+                running++;
+            }
+        }
+        return running;
+    }
+
+    private boolean isRunning(int root, int starts){
+        for(int g = 0; g < starts; g++){
+            if(find(g) == root && queueHead[g] < queueTail[g]){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int find(int f){
+        while(group[f] != f){
+            f = group[f];
+        }
+        return f;
+    }
+
+    private void union(int a, int b){
+        int rootA = find(a);
+        int rootB = find(b);
+        if(rootA != rootB){
+            group[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    //Distinct labels of the free neighbours of the cell, into neighbours[]
+    private int collectNeighbourLabels(int cell){
+        int count = 0;
+        int x = cell % width;
+        for(int d = 0; d < 4; d++){
+            int neighbour = neighbour(cell, x, d);
+            if(neighbour >= 0 && !blocked[neighbour]){
+                int l = label[neighbour];
+                boolean seen = false;
+                for(int i = 0; i < count; i++){
+                    seen |= neighbours[i] == l;
+                }
+                if(!seen){
+                    neighbours[count++] = l;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int findCell(int cell, int wanted){
+        int x = cell % width;
+        for(int d = 0; d < 4; d++){
+            int neighbour = neighbour(cell, x, d);
+            if(neighbour >= 0 && !blocked[neighbour] && label[neighbour] == wanted){
+                return neighbour;
+            }
+        }
+        throw new IllegalStateException("No neighbour with label " + wanted);
+    }
+
+    //Gives every cell with label from in the region of start the label to, returns how many there were
+    private int relabel(int start, int from, int to){
+        int[] queue = queues[0];
+        int tail = 0;
+        label[start] = to;
+        queue[tail++] = start;
+        for(int head = 0; head < tail; head++){
+            int current = queue[head];
+            int x = current % width;
+            for(int d = 0; d < 4; d++){
+                int neighbour = neighbour(current, x, d);
+                if(neighbour >= 0 && !blocked[neighbour] && label[neighbour] == from){
+                    label[neighbour] = to;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return tail;
+    }
+
+    private int neighbour(int cell, int x, int d){
+        switch (d){
+            case 0:
+                return cell >= width ? cell - width : -1;
+            case 1:
+                return x < width - 1 ? cell + 1 : -1;
+            case 2:
+                return cell + width < cellCount ? cell + width : -1;
+            default:
+                return x > 0 ? cell - 1 : -1;
+        }
+    }
+
+    private int newLabel(){
+        return freeLabels[--freeLabelCount];
+    }
+
+    private void releaseLabel(int l){
+        regionSize[l] = 0;
+        freeLabels[freeLabelCount++] = l;
+    }
+
+    private void nextGeneration(){
+        generation++;
+        if(generation <= 0 || generation > Integer.MAX_VALUE / 4 - 1){
+            Arrays.fill(mark, 0);
+            generation = 1;
+        }
+    }
+}
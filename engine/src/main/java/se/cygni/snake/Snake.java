@@ -0,0 +1,217 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Created by trivo on 2017-03-28.
+ *
+ * The body is kept as map cells (x + y * mapWidth) in a ring buffer with the head
+ * first, so stepping and copying a snake does not allocate once the buffer is big enough.
+ */
+public class Snake {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Snake.class);
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private String id;
+    private final int mapWidth;
+    private Direction dir;
+    private int[] body;
+    private int first;
+    private int length;
+    private long lifeTime;
+    private boolean hasEaten;
+
+
+    public Snake(Snake snake){
+        this(snake.id, snake.mapWidth);
+        copyFrom(snake);
+    }
+
+
+
+
+    public Snake(String id, Coordinate[] spread, long lifeTime, int mapWidth){
+        this(id, mapWidth);
+        ensureCapacity(spread.length + 1);
+
+        for(Coordinate coord : spread){
+            body[length++] = coord.x + coord.y * mapWidth;
+        }
+
+        if(spread.length >= 2){
+            dir = inferDir(body[0], body[1]);
+        } else {
+            dir = Direction.DOWN; //Not known yet
+        }
+
+        this.lifeTime = lifeTime;
+    }
+
+    //Empty snake, to be filled in with copyFrom
+    Snake(String id, int mapWidth){
+        this.id = id;
+        this.mapWidth = mapWidth;
+        this.body = new int[INITIAL_CAPACITY];
+        this.dir = Direction.DOWN;
+        this.hasEaten = false;
+    }
+
+    /**
+     * Makes this snake a copy of the given one, the same way the copy constructor does.
+     * Like a fresh copy it has not eaten, and its direction is inferred from its body.
+     */
+    void copyFrom(Snake snake){
+        id = snake.id;
+        ensureCapacity(snake.length + 1);
+        for(int i = 0; i < snake.length; i++){
+            body[i] = snake.getCell(i);
+        }
+        first = 0;
+        length = snake.length;
+        lifeTime = snake.lifeTime;
+        hasEaten = false;
+
+        if(length >= 2){
+            dir = inferDir(body[0], body[1]);
+        } else {
+            dir = Direction.DOWN;
+        }
+    }
+
+    private void ensureCapacity(int capacity){
+        if(capacity <= body.length){
+            return;
+        }
+        int[] newBody = new int[Math.max(capacity, body.length * 2)];
+        for(int i = 0; i < length; i++){
+            newBody[i] = getCell(i);
+        }
+        body = newBody;
+        first = 0;
+    }
+
+    private Direction inferDir(int newHead, int oldHead) {
+        int newX = newHead % mapWidth;
+        int oldX = oldHead % mapWidth;
+        if(newX < oldX){
+            return Direction.LEFT;
+        } else if (newX > oldX){
+            return Direction.RIGHT;
+        } else if (newHead < oldHead){
+            return Direction.UP;
+        } else if (newHead > oldHead){
+            return Direction.DOWN;
+        }
+        LOGGER.warn("Snake {} moved its head onto itself at cell {}", id, newHead);
+        return Direction.DOWN;
+    }
+
+
+
+
+    /**
+     * Moves the head to the given cell. Returns the cell the tail left, or -1 if the snake grew.
+     */
+    public int updatePos(int newHead){
+        int oldHead = getHeadCell();
+        ensureCapacity(length + 1);
+        first = (first + body.length - 1) % body.length;
+        body[first] = newHead;
+        length++;
+        dir = inferDir(newHead, oldHead);
+        return increaseLife();
+    }
+
+    public int updatePos(Coordinate newHead){
+        return updatePos(newHead.x + newHead.y * mapWidth);
+    }
+
+    private int increaseLife(){
+        int removed = -1;
+        if(!((lifeTime % 3 == 0) || hasEaten)){
+            removed = getTailCell();
+            length--;
+        }
+        hasEaten = false;
+        lifeTime++;
+        return removed;
+    }
+
+
+
+
+    public String getId() {
+        return id;
+    }
+
+    public Direction getDir() {
+        return dir;
+    }
+
+    public void setDir(Direction dir) {
+        this.dir = dir;
+    }
+
+    public long getLifeTime() {
+        return lifeTime;
+    }
+
+    /**
+     * Returns the i:th body cell counted from the head.
+     */
+    public int getCell(int i){
+        return body[(first + i) % body.length];
+    }
+
+    public int getHeadCell(){
+        return body[first];
+    }
+
+    public int getTailCell(){
+        return getCell(length - 1);
+    }
+
+    public Coordinate getHead() {
+        return toCoordinate(getHeadCell());
+    }
+
+    public Coordinate getTail() {
+        return toCoordinate(getTailCell());
+    }
+
+    private Coordinate toCoordinate(int cell){
+        return new Coordinate(cell % mapWidth, cell / mapWidth);
+    }
+
+    public int getLength(){
+        return length;
+    }
+
+    public boolean occupies(Coordinate coord){
+        if(coord.x < 0 || coord.x >= mapWidth){
+            return false;
+        }
+        int cell = coord.x + coord.y * mapWidth;
+        for(int i = 0; i < length; i++){
+            if(getCell(i) == cell){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setHasEaten(boolean b) {
+        hasEaten = b;
+    }
+
+     public boolean getHasEaten(){
+        return hasEaten;
+     }
+
+    public void kill() {
+         length = 0;
+    }
+}
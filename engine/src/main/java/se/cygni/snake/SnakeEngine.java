@@ -0,0 +1,762 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static se.cygni.snake.SnakeState.DIRECTIONS;
+
+/**
+ * The decision logic of the bot. Each player owns its own engine, so several
+ * players can search at the same time on a shared search pool.
+ *
+ * Once the first tick of a game has sized the state pool, a decision does not allocate:
+ * every ply of the search is written into a preallocated state, and the per direction
+ * results are kept in arrays indexed by direction ordinal.
+ *
+ * A decision goes through three stages, each only reached when the one before could not
+ * decide. Stage 0 counts the legal moves and returns at once if there is at most one.
+ * Stage 1 follows the fill plan when we are sealed off, and otherwise screens the legal
+ * moves on the size of the region they lead into and on foe heads next to them, with the
+ * cutoffs of {@link EngineWeights#getRegionScreen()} and {@link EngineWeights#getDangerScreen()}.
+ * Stage 2 runs the deep search on the moves that are left.
+ *
+ * The path the deep search took for the chosen move is kept as the principal variation.
+ * When the next board is the one it predicted, the search of the move the path continues
+ * with is re-rooted on it: the plies already searched are stepped through again without
+ * choosing moves, and the search goes on from where the path ended.
+ *
+ * With a {@link DistanceTable} for the map, moving to the middle and foes heading for
+ * us are judged by distances around the obstacles rather than by quadrants and axes.
+ */
+public class SnakeEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnakeEngine.class);
+
+    //Risk positions relative to our head, as {dx, dy, direction ordinal a foe there may safely move in}
+    private static final int ANY_DIRECTION = -1;
+    private static final int[][][] HIGH_RISK_POSITIONS = new int[DIRECTIONS.length][][];
+    private static final int[][][] LOW_RISK_POSITIONS = new int[DIRECTIONS.length][][];
+
+    static {
+        int left = Direction.LEFT.ordinal();
+        int right = Direction.RIGHT.ordinal();
+        int up = Direction.UP.ordinal();
+        int down = Direction.DOWN.ordinal();
+
+        HIGH_RISK_POSITIONS[left] = new int[][]{{-2, 0, left}, {-1, 1, down}, {-1, -1, up}};
+        HIGH_RISK_POSITIONS[right] = new int[][]{{2, 0, right}, {1, 1, down}, {1, -1, up}};
+        HIGH_RISK_POSITIONS[down] = new int[][]{{-1, 1, left}, {1, 1, right}, {0, 2, down}};
+        HIGH_RISK_POSITIONS[up] = new int[][]{{-1, -1, left}, {1, -1, right}, {0, -2, up}};
+
+        LOW_RISK_POSITIONS[left] = new int[][]{{-3, 0, left}, {-2, 1, ANY_DIRECTION}, {-2, -1, ANY_DIRECTION},
+                {-1, -2, up}, {-1, 2, down}};
+        LOW_RISK_POSITIONS[right] = new int[][]{{3, 0, right}, {2, 1, ANY_DIRECTION}, {2, -1, ANY_DIRECTION},
+                {1, -2, up}, {1, 2, down}};
+        LOW_RISK_POSITIONS[down] = new int[][]{{0, 3, down}, {-2, 1, left}, {2, 1, right},
+                {1, 2, ANY_DIRECTION}, {-1, 2, ANY_DIRECTION}};
+        LOW_RISK_POSITIONS[up] = new int[][]{{0, -3, up}, {-2, -1, left}, {2, -1, right},
+                {1, -2, ANY_DIRECTION}, {-1, -2, ANY_DIRECTION}};
+    }
+
+    public static final int STAGE_FORCED = 0;
+    public static final int STAGE_SCREENED = 1;
+    public static final int STAGE_SEARCHED = 2;
+    private static final String[] STAGE_NAMES = {"forced", "screened", "searched"};
+
+    private final int maxSearchDepth;
+    private final EngineWeights weights;
+    private final EvaluationCache evaluationCache;
+    //Salts for positions searched without and with a distance table, and the one of the current decision
+    private final long cacheSalt;
+    private final long tableSalt;
+    private long positionSalt;
+
+    private long deadlineNanos;
+    private int finalOpenSpaces;
+    private boolean truncated;
+    //Set from another thread once the decision is no longer wanted
+    private volatile boolean cancelled;
+    //Search statistics of the current decision
+    private long nodes;
+    private int depthReached;
+    private long floodedBefore;
+    private long riskNanos;
+    //Decisions made by each stage since the engine was created
+    private final long[] stageDecisions = new long[STAGE_NAMES.length];
+    private long reRoots;
+    private long pliesReused;
+
+    //Reused between ticks
+    private final BonusHandler bh = new BonusHandler();
+    private final boolean[] evaluated = new boolean[DIRECTIONS.length];
+    private final boolean[] candidates = new boolean[DIRECTIONS.length];
+    private final int[] searchValues = new int[DIRECTIONS.length];
+    private final int[] openTileValues = new int[DIRECTIONS.length];
+    private final int[] collisionRisk = new int[DIRECTIONS.length];
+    private final int[] cachedValues = new int[EvaluationCache.VALUE_COUNT];
+    //Moves of the path being searched, index 0 being the root move, and of each root move once searched
+    private Direction[] path;
+    private final Direction[][] rootPaths = new Direction[DIRECTIONS.length][];
+    private final int[] rootPathLengths = new int[DIRECTIONS.length];
+    //The principal variation of the last decision and the position it expects next
+    private Direction[] principalVariation;
+    private int principalVariationLength;
+    private long expectedPosition;
+    private long expectedTick;
+    private SnakeState[] plies;
+    private FloodFill floodFill;
+    private RegionTracker regions;
+    private SpaceFiller spaceFiller;
+    private FoeTrajectories trajectories;
+    //The table for the current game, and whether the obstacles last checked against it matched
+    private DistanceTable distanceTable;
+    private boolean[] checkedObstacles;
+    private boolean distancesMatch;
+    private DistanceTable distances;
+
+    public SnakeEngine(int maxSearchDepth){
+        this(maxSearchDepth, EngineWeights.defaults());
+    }
+
+    public SnakeEngine(int maxSearchDepth, EngineWeights weights){
+        this(maxSearchDepth, weights, null);
+    }
+
+    /**
+     * An engine that looks up and stores the deep search of every root move in the given
+     * cache, which may be null.
+     */
+    public SnakeEngine(int maxSearchDepth, EngineWeights weights, EvaluationCache evaluationCache){
+        this.maxSearchDepth = maxSearchDepth;
+        this.weights = weights;
+        this.evaluationCache = evaluationCache;
+
+        //Results depend on the depth and the weights as well as on the position
+        long salt = PositionHash.mix(maxSearchDepth);
+        for(double weight : weights.toVector()){
+            salt = PositionHash.mix(salt + Double.doubleToLongBits(weight));
+        }
+        this.cacheSalt = salt;
+        //Foe predictions and the middle bonus change with a distance table
+        this.tableSalt = PositionHash.mix(salt + 1);
+    }
+
+    /**
+     * Picks the direction to move in for the given state. The search is truncated
+     * once {@code deadlineNanos} (as given by {@link System#nanoTime()}) has passed.
+     */
+    public Direction getBestPossibleDirection(SnakeState currentState, long deadlineNanos){
+        this.deadlineNanos = deadlineNanos;
+        ensurePool(currentState);
+        currentState.setFloodFill(floodFill);
+        distances = getDistances(currentState);
+        currentState.setDistances(distances);
+        positionSalt = distances != null ? tableSalt : cacheSalt;
+        floodFill.scheduleReleases(currentState);
+        regions.update(currentState);
+        int head = currentState.getSelf().getHeadCell();
+        long gameTick = currentState.getSelf().getLifeTime();
+        EngineEvents events = EngineEvents.get();
+        nodes = 0;
+        depthReached = 0;
+        floodedBefore = floodFill.getCellsFlooded();
+
+        //Stage 0: nothing to choose between
+        int legalMoves = 0;
+        Direction onlyMove = Direction.DOWN;
+        for(Direction dir : DIRECTIONS){
+            if(currentState.canIMoveInDirection(dir)){
+                legalMoves++;
+                onlyMove = dir;
+            }
+        }
+        if(legalMoves <= 1){
+            principalVariationLength = 0;
+            spaceFiller.follow(head, legalMoves == 1 ? currentState.getNeighbour(head, onlyMove) : -1);
+            stageDecisions[STAGE_FORCED]++;
+            return onlyMove; //Down when boxed in
+        }
+
+        //Stage 1: the fill plan, or a screen leaving a single move
+        Direction fillDir = spaceFiller.getMove(currentState, deadlineNanos);
+        if(fillDir != null){
+            principalVariationLength = 0;
+            stageDecisions[STAGE_SCREENED]++;
+            return fillDir; //Sealed off from all foes, just fill our region
+        }
+        boolean recordRisk = events.isEnabled(EngineEvents.COLLISION_RISK);
+        Direction screenedDir = screenMoves(currentState, head, recordRisk);
+        if(screenedDir != null){
+            principalVariationLength = 0;
+            stageDecisions[STAGE_SCREENED]++;
+            return screenedDir;
+        }
+
+        //Stage 2: deep search of the moves that passed the screen
+        stageDecisions[STAGE_SEARCHED]++;
+        int reRootDir = getReRootDirection(currentState, gameTick);
+
+        trajectories.build(currentState);
+        bh.clear();
+        long boardHash = evaluationCache != null ? PositionHash.hashBoard(currentState, positionSalt) : 0;
+
+        Direction bestDir = Direction.DOWN;
+        int maxValue = Integer.MIN_VALUE;
+        int maxTiles = 0;
+        int mostFinalOpenSpaces = 0;
+
+        for(Direction dir : DIRECTIONS) {
+            finalOpenSpaces = 0;
+            int d = dir.ordinal();
+            evaluated[d] = false;
+            if (candidates[d]) {
+                if(LOGGER.isDebugEnabled()){
+                    LOGGER.debug("===={}====", dir);
+                }
+                BonusTracker bt = bh.addBonusTracker(dir);
+                SnakeState futureState = plies[0];
+                currentState.createFutureState(dir, futureState);
+
+                int searchVal;
+                if(events.isEnabled(EngineEvents.ROOT_SEARCH)){
+                    Object event = events.begin(EngineEvents.ROOT_SEARCH);
+                    long nodesBefore = nodes;
+                    long flooded = floodFill.getCellsFlooded();
+                    int depthBefore = depthReached;
+                    depthReached = 0;
+                    searchVal = searchRootMove(futureState, bt, boardHash, d, d == reRootDir);
+                    events.rootSearch(event, gameTick, depthReached, nodes - nodesBefore,
+                            floodFill.getCellsFlooded() - flooded, dir, searchVal);
+                    depthReached = Math.max(depthBefore, depthReached);
+                } else {
+                    searchVal = searchRootMove(futureState, bt, boardHash, d, d == reRootDir);
+                }
+                int openTiles = openTileValues[d];
+
+                if(searchVal > maxValue){
+                    maxValue = searchVal;
+                    bestDir = dir;
+                    maxTiles = openTiles;
+                    mostFinalOpenSpaces = finalOpenSpaces;
+
+                } else if (finalOpenSpaces > mostFinalOpenSpaces && openTiles > maxValue){
+                    bestDir = dir;
+                    maxTiles = openTiles;
+                    mostFinalOpenSpaces = finalOpenSpaces;
+                } else if (openTiles > maxTiles){
+                    //System.out.println("Best direction set to " + dir);
+                    bestDir = dir;
+                    maxTiles = openTiles;
+                    mostFinalOpenSpaces = finalOpenSpaces;
+                }
+
+                if(LOGGER.isDebugEnabled()){
+                    LOGGER.debug("Found a value of {} in direction {} with {} tiles", searchVal, dir, openTiles);
+                }
+                evaluated[d] = true;
+                searchValues[d] = searchVal;
+            }
+
+        }
+
+        int maxBonus = bh.getBonus(bestDir);
+        for(Direction dir : DIRECTIONS){
+            int d = dir.ordinal();
+            if(evaluated[d] && dir != bestDir && searchValues[d] >= maxValue && openTileValues[d] >= maxTiles
+                    && bh.getBonus(dir) > maxBonus){
+                bestDir = dir;
+                maxBonus = bh.getBonus(dir);
+                if(LOGGER.isDebugEnabled()){
+                    LOGGER.debug("Changed to {} due to bonuses", dir);
+                }
+            }
+        }
+
+        Object riskEvent = recordRisk ? events.begin(EngineEvents.COLLISION_RISK) : null;
+        int leastRisk = collisionRisk[bestDir.ordinal()];
+        if(leastRisk > 1){
+            double riskThreshold = maxValue * weights.getCollisionSearchThreshold();
+            for(Direction dir : DIRECTIONS){
+                int d = dir.ordinal();
+                if(evaluated[d] && collisionRisk[d] < leastRisk && (searchValues[d] > riskThreshold)){
+                    if(LOGGER.isDebugEnabled()){
+                        LOGGER.debug("Changed to {} due to collision risk", dir);
+                    }
+                    leastRisk = collisionRisk[d];
+                    bestDir = dir;
+
+                }
+            }
+        }
+        if(recordRisk){
+            events.collisionRisk(riskEvent, gameTick, riskNanos, bestDir, leastRisk);
+        }
+
+        keepPrincipalVariation(currentState, bestDir, gameTick);
+        return bestDir;
+    }
+
+    /**
+     * The number of search plies visited by the last decision.
+     */
+    public long getNodes(){
+        return nodes;
+    }
+
+    /**
+     * The deepest ply the last decision searched, counted in moves from the board.
+     */
+    public int getDepthReached(){
+        return depthReached;
+    }
+
+    /**
+     * The cells flooded by open space counts during the last decision.
+     */
+    public long getCellsFlooded(){
+        return floodFill == null ? 0 : floodFill.getCellsFlooded() - floodedBefore;
+    }
+
+    /**
+     * Makes a running search, and any search started before {@link #clearCancel()},
+     * return as if its deadline had passed. Safe to call from any thread.
+     */
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public void clearCancel(){
+        cancelled = false;
+    }
+
+    /**
+     * Sets the distance table of the map being played, null for none. Boards on other
+     * maps are decided without it.
+     */
+    public void setDistanceTable(DistanceTable distanceTable){
+        this.distanceTable = distanceTable;
+        this.checkedObstacles = null;
+    }
+
+    public DistanceTable getDistanceTable(){
+        return distanceTable;
+    }
+
+    //The table if it is for the map of this state. States of one game share their obstacles, so that is only checked once.
+    private DistanceTable getDistances(SnakeState state){
+        if(distanceTable == null){
+            return null;
+        }
+        boolean[] obstacles = state.getObstacleCells();
+        if(obstacles != checkedObstacles){
+            checkedObstacles = obstacles;
+            distancesMatch = distanceTable.matches(state);
+        }
+        return distancesMatch ? distanceTable : null;
+    }
+
+    /**
+     * Forgets what is carried over between ticks, so the next decision only depends on the board.
+     */
+    public void reset(){
+        principalVariationLength = 0;
+        if(spaceFiller != null){
+            spaceFiller.reset();
+            regions.reset();
+        }
+    }
+
+    /**
+     * Decisions made by the given stage since the engine was created, see {@link #STAGE_FORCED},
+     * {@link #STAGE_SCREENED} and {@link #STAGE_SEARCHED}.
+     */
+    public long getStageDecisions(int stage){
+        return stageDecisions[stage];
+    }
+
+    /**
+     * The share of decisions made by each stage, for logging.
+     */
+    public String getStageStats(){
+        long total = 0;
+        for(long decisions : stageDecisions){
+            total += decisions;
+        }
+        StringBuilder sb = new StringBuilder();
+        for(int stage = 0; stage < STAGE_NAMES.length; stage++){
+            sb.append(String.format("%s %.1f%%, ", STAGE_NAMES[stage],
+                    total == 0 ? 0 : 100.0 * stageDecisions[stage] / total));
+        }
+        return sb.append(total).append(" decisions").toString();
+    }
+
+    /**
+     * How often a deep search was re-rooted on the principal variation of the decision
+     * before, and how many plies of it were reused each time.
+     */
+    public String getReuseStats(){
+        long searched = stageDecisions[STAGE_SEARCHED];
+        return String.format("re-rooted %d of %d searches (%.1f%%), %.1f plies reused per re-root",
+                reRoots, searched, searched == 0 ? 0 : 100.0 * reRoots / searched,
+                reRoots == 0 ? 0 : (double) pliesReused / reRoots);
+    }
+
+    //The root move that continues the principal variation if the board is the one it predicted, else -1
+    private int getReRootDirection(SnakeState state, long gameTick){
+        if(principalVariationLength < 2 || gameTick != expectedTick
+                || PositionHash.hashPosition(state, positionSalt) != expectedPosition){
+            return -1;
+        }
+        return principalVariation[1].ordinal();
+    }
+
+    //Keeps the path of the chosen move, unless it came from the cache or was cut short by the deadline
+    private void keepPrincipalVariation(SnakeState state, Direction bestDir, long gameTick){
+        int d = bestDir.ordinal();
+        principalVariationLength = rootPathLengths[d];
+        if(principalVariationLength < 2){
+            return;
+        }
+        Direction[] kept = principalVariation;
+        principalVariation = rootPaths[d];
+        rootPaths[d] = kept;
+
+        SnakeState child = plies[0];
+        state.createFutureState(bestDir, child);
+        expectedPosition = PositionHash.hashPosition(child, positionSalt);
+        expectedTick = gameTick + 1;
+    }
+
+    //Sizes up every legal move and marks the ones worth a deep search. Returns the move if only one is left.
+    private Direction screenMoves(SnakeState state, int head, boolean recordRisk){
+        long riskStart = recordRisk ? System.nanoTime() : 0;
+        int largestRegion = 0;
+        for(Direction dir : DIRECTIONS){
+            int d = dir.ordinal();
+            candidates[d] = state.canIMoveInDirection(dir);
+            if(candidates[d]){
+                openTileValues[d] = getRootOpenSpaces(state, head, dir);
+                collisionRisk[d] = getCollisionRisk(state, dir);
+                largestRegion = Math.max(largestRegion, openTileValues[d]);
+            }
+        }
+        riskNanos = recordRisk ? System.nanoTime() - riskStart : 0;
+
+        //Moves into a much smaller region than the best one are traps
+        double regionScreen = weights.getRegionScreen();
+        int dangerScreen = weights.getDangerScreen();
+        boolean anySafe = false;
+        for(Direction dir : DIRECTIONS){
+            int d = dir.ordinal();
+            if(candidates[d] && openTileValues[d] < regionScreen * largestRegion){
+                candidates[d] = false;
+            }
+            anySafe |= candidates[d] && collisionRisk[d] < dangerScreen;
+        }
+
+        //Moves where a foe head may get there first, as long as one without that risk is left
+        int left = 0;
+        Direction survivor = null;
+        for(Direction dir : DIRECTIONS){
+            int d = dir.ordinal();
+            if(candidates[d] && dangerScreen > 0 && anySafe && collisionRisk[d] >= dangerScreen){
+                candidates[d] = false;
+            }
+            if(candidates[d]){
+                left++;
+                survivor = dir;
+            }
+        }
+        if(LOGGER.isDebugEnabled() && left == 1){
+            LOGGER.debug("Only {} passed the screen", survivor);
+        }
+        return left == 1 ? survivor : null;
+    }
+
+    //Region sizes ignore retracting tails, tight regions are counted again tail aware
+    private int getRootOpenSpaces(SnakeState state, int head, Direction dir){
+        int tile = state.getNeighbour(head, dir);
+        int openTiles = regions.openSpacesAround(tile);
+        if(floodFill.isTight(state, openTiles)){
+            openTiles = floodFill.countAroundTimed(state, tile, 1);
+        }
+        return openTiles;
+    }
+
+    //The deep search of a root move, or its result from the evaluation cache. Truncated searches are not stored.
+    private int searchRootMove(SnakeState futureState, BonusTracker bt, long boardHash, int d, boolean continuesVariation){
+        rootPathLengths[d] = 0;
+        if(evaluationCache == null){
+            return searchPath(futureState, bt, d, continuesVariation);
+        }
+
+        long key = PositionHash.hashPosition(futureState, boardHash);
+        int[] values = cachedValues;
+        if(evaluationCache.get(key, values)){
+            finalOpenSpaces = values[1];
+            bt.restore(values[2], values[3], values[4], values[5]);
+            return values[0];
+        }
+
+        int searchVal = searchPath(futureState, bt, d, continuesVariation);
+        if(!truncated){
+            values[0] = searchVal;
+            values[1] = finalOpenSpaces;
+            values[2] = bt.getFoodOnPath();
+            values[3] = bt.getFreeHeadSpaces();
+            values[4] = bt.getMiddleBonus();
+            values[5] = bt.getKillBonus();
+            evaluationCache.put(key, values);
+        }
+        return searchVal;
+    }
+
+    //Searches a root move and keeps its path, following the principal variation as far as it goes if asked to
+    private int searchPath(SnakeState futureState, BonusTracker bt, int d, boolean continuesVariation){
+        truncated = false;
+        path[0] = DIRECTIONS[d];
+        int searchVal;
+        if(continuesVariation){
+            reRoots++;
+            searchVal = followPrincipalVariation(futureState, bt, maxSearchDepth);
+        } else {
+            searchVal = getLongestPossiblePath(futureState, bt, maxSearchDepth);
+        }
+        if(!truncated){
+            System.arraycopy(path, 0, rootPaths[d], 0, searchVal + 1);
+            rootPathLengths[d] = searchVal + 1;
+        }
+        return searchVal;
+    }
+
+    //One preallocated state per ply, sized after the board. Only reallocated when the board changes shape.
+    private void ensurePool(SnakeState state){
+        int width = state.getMapWidth();
+        int height = state.getMapHeight();
+        if(plies != null && plies[0].getMapWidth() == width && plies[0].getMapHeight() == height){
+            return;
+        }
+
+        floodFill = new FloodFill(width * height);
+        floodFill.setTightRegionFactor(weights.getTightRegionFactor());
+        regions = new RegionTracker(width, height);
+        spaceFiller = new SpaceFiller(width, height);
+        //The deepest ply is maxSearchDepth + 1 moves after the board
+        trajectories = new FoeTrajectories(width, height, maxSearchDepth + 1, state.getFoeCount());
+        path = new Direction[maxSearchDepth + 2];
+        for(int d = 0; d < rootPaths.length; d++){
+            rootPaths[d] = new Direction[maxSearchDepth + 2];
+        }
+        principalVariation = new Direction[maxSearchDepth + 2];
+        principalVariationLength = 0;
+        plies = new SnakeState[maxSearchDepth + 1];
+        for(int i = 0; i < plies.length; i++){
+            plies[i] = new SnakeState(height, width, state.getFoeCount());
+            plies[i].setFloodFill(floodFill);
+        }
+    }
+
+    private boolean isSelfMovingMid(SnakeState state){
+        Snake self = state.getSelf();
+        if(distances != null && self.getLength() >= 2){
+            int centre = distances.getCentre();
+            return distances.distance(self.getHeadCell(), centre) < distances.distance(self.getCell(1), centre);
+        }
+
+        int selfHead = state.getSelf().getHeadCell();
+        Direction selfDir = state.getSelf().getDir();
+        int width = state.getMapWidth();
+        int height = state.getMapHeight();
+        int selfX = selfHead % width;
+        int selfY = selfHead / width;
+
+        if(selfX < width / 2) {
+            if(selfY < height / 2){ //First and third quadrant
+                return selfDir == Direction.RIGHT ||selfDir == Direction.DOWN;
+            } else
+                return selfDir == Direction.RIGHT || selfDir == Direction.UP;
+        } else {
+            if(selfY < height / 2){
+                return selfDir == Direction.LEFT || selfDir == Direction.DOWN;
+            } else {
+                return selfDir == Direction.LEFT || selfDir == Direction.UP;
+            }
+        }
+    }
+
+
+    private int finalizePath(SnakeState state){
+        if(state.canIMoveInDirection(state.getSelf().getDir())){
+            finalOpenSpaces = state.getOpenSpacesinDir(state.getSelf().getDir());
+            return 0;
+        } else {
+            for (Direction dir : DIRECTIONS) {
+                if (state.canIMoveInDirection(dir)) {
+                    int spaces = state.getOpenSpacesinDir(dir);
+                    if (spaces > finalOpenSpaces) {
+                        finalOpenSpaces = spaces;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private int getLongestPossiblePath(SnakeState state, BonusTracker bt, int depth){
+        nodes++;
+        depthReached = Math.max(depthReached, maxSearchDepth - depth + 1);
+        if(depth <= 0){
+            return finalizePath(state);
+        }
+        if(isPastDeadline()){
+            truncated = true;
+            return finalizePath(state);
+        }
+
+        checkBonusValue(state, bt, depth);
+
+        int ply = maxSearchDepth - depth + 1;
+        SnakeState futureState = plies[ply];
+        Direction currentDir = state.getSelf().getDir();
+        if(state.canIMoveInDirection(currentDir)){
+            path[ply] = currentDir;
+            state.createFutureState(currentDir, futureState);
+            return 1 + getLongestPossiblePath(futureState, bt, depth-1);
+        } else {
+            int mostOpenSpaces = 0;
+            Direction bestDir = null;
+            for(Direction dir : DIRECTIONS){
+                if(state.canIMoveInDirection(dir)){
+                    int openSpaces = state.getOpenSpacesinDir(dir);
+                    if(openSpaces > mostOpenSpaces){
+                        //System.out.println("Expected turnout when predicting bend: " + dir + ": " + openSpaces);
+                        mostOpenSpaces = openSpaces;
+                        bestDir = dir;
+                    }
+                }
+            }
+
+            if(bestDir != null){
+                path[ply] = bestDir;
+                state.createFutureState(bestDir, futureState);
+                return 1 + getLongestPossiblePath(futureState, bt, depth-1);
+            }
+
+            for(Direction dir : DIRECTIONS){
+                if(state.canIMoveInDirection(dir)){
+                    finalOpenSpaces = state.getOpenSpacesinDir(state.getSelf().getDir());
+                }
+            }
+            //System.out.println("Path ended: Returning with final open spaces " +  finalOpenSpaces);
+            return 0;
+        }
+    }
+
+
+
+    //Steps through the moves the previous search made from this position on, then searches on from where they end
+    private int followPrincipalVariation(SnakeState state, BonusTracker bt, int depth){
+        //The previous path started one move earlier, at the root move of the decision before
+        int ply = maxSearchDepth - depth + 1;
+        if(depth <= 0 || ply + 1 >= principalVariationLength){
+            return getLongestPossiblePath(state, bt, depth);
+        }
+        nodes++;
+        depthReached = Math.max(depthReached, ply);
+        if(isPastDeadline()){
+            truncated = true;
+            return finalizePath(state);
+        }
+
+        checkBonusValue(state, bt, depth);
+
+        Direction dir = principalVariation[ply + 1];
+        path[ply] = dir;
+        pliesReused++;
+        state.createFutureState(dir, plies[ply]);
+        return 1 + followPrincipalVariation(plies[ply], bt, depth - 1);
+    }
+
+    private void checkBonusValue(SnakeState state, BonusTracker bt, int depth){
+
+        if(state.getFoeCount() > 1){
+            if(!isHeadWrapped(state) && depth >= maxSearchDepth - weights.getHeadFreeWindow()){
+                bt.headFree();
+            }
+
+            if(depth >= maxSearchDepth - weights.getFoodWindow() && state.isFood(state.getSelf().getHeadCell())){
+                bt.foodFound(weights.getFoodValue());
+            }
+
+            if(depth >= maxSearchDepth - weights.getMiddleWindow() && isSelfMovingMid(state)) {
+                bt.targetMiddle();
+            }
+        }
+
+
+
+        if(depth >= maxSearchDepth - weights.getKillWindow() && state.getIsKilledFoeState()){
+            //System.out.println("Predicting kill in " + (depth - maxSearchDepth) + " steps");
+            bt.killBonus(weights.getKillValue());
+        }
+
+    }
+
+    private int getCollisionRisk(SnakeState state, Direction dir){
+        int highRisk = getRiskValue(state, HIGH_RISK_POSITIONS[dir.ordinal()]);
+        int lowRisk = getRiskValue(state, LOW_RISK_POSITIONS[dir.ordinal()]);
+        if(LOGGER.isDebugEnabled()){
+            LOGGER.debug("Collision risk in direction {}: {} high, {} low", dir, highRisk, lowRisk);
+        }
+        return weights.getHighRiskWeight() * highRisk + lowRisk;
+    }
+
+    //Counts foe heads on any of the risk positions, unless the foe is moving in the direction given for that position
+    private int getRiskValue(SnakeState state, int[][] riskPositions){
+        int riskValue = 0;
+        int width = state.getMapWidth();
+        int selfHead = state.getSelf().getHeadCell();
+        int selfX = selfHead % width;
+        int selfY = selfHead / width;
+
+        for (int i = 0; i < state.getFoeCount(); i++){
+            Snake foe = state.getFoe(i);
+            int foeHead = foe.getHeadCell();
+            int dx = foeHead % width - selfX;
+            int dy = foeHead / width - selfY;
+            for(int[] riskPos : riskPositions){
+                if(dx == riskPos[0] && dy == riskPos[1] && foe.getDir().ordinal() != riskPos[2]){
+                    riskValue++;
+                }
+            }
+        }
+        return riskValue;
+    }
+
+    private boolean isPastDeadline(){
+        return cancelled || System.nanoTime() - deadlineNanos > 0;
+    }
+
+    private boolean isHeadWrapped(SnakeState state){
+        Snake self = state.getSelf();
+        int selfHead = self.getHeadCell();
+        Direction selfDir = self.getDir();
+        int selfX = selfHead % state.getMapWidth();
+        int selfY = selfHead / state.getMapWidth();
+
+        if(selfDir == Direction.DOWN || selfDir == Direction.UP){
+            return isBlockade(state, selfHead, Direction.LEFT) ||
+                    isBlockade(state, selfHead, Direction.RIGHT) ||
+                    selfX == state.getMapWidth() - 1 || selfX == 0;
+        } else {
+            return isBlockade(state, selfHead, Direction.DOWN) ||
+                    isBlockade(state, selfHead, Direction.UP) ||
+                    selfY == state.getMapHeight() - 1 || selfY == 0;
+        }
+    }
+
+    private boolean isBlockade(SnakeState state, int cell, Direction dir){
+        int neighbour = state.getNeighbour(cell, dir);
+        return neighbour >= 0 && state.isBlockedByOthers(neighbour);
+    }
+}
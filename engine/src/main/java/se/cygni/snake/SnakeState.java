@@ -0,0 +1,465 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Created by trivo on 2017-03-29.
+ *
+ * Cells are indexed as x + y * mapWidth. Obstacles and food are shared between a state
+ * and its future states, the snake occupancy is kept as a count per cell so that
+ * overlapping predictions can be stepped back out again.
+ *
+ * With {@link FoeTrajectories} attached, a future state whose foes move as the table
+ * predicts shares the foes and foe occupancy of the table instead of simulating them.
+ * Those are read only, a state only writes to its own foe storage.
+ */
+public class SnakeState {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnakeState.class);
+
+    //Direction.values() clones the array on every call
+    static final Direction[] DIRECTIONS = Direction.values();
+
+    private int mapHeight;
+    private int mapWidth;
+
+    private Snake self;
+    private Snake[] foes;
+    private Snake[] ownFoes;
+    private int foeCount;
+    private boolean[] obstacles;
+    private boolean[] food;
+    private byte[] selfCells;
+    private byte[] foeCells;
+    private byte[] ownFoeCells;
+    private boolean isKilledFoeState;
+    private FloodFill floodFill;
+    //Plies since the board the engine got, zero for that board
+    private int age;
+    private FoeTrajectories trajectories;
+    //True while every foe has moved as the trajectory table predicts, then foes and foeCells are the table's
+    private boolean onTable;
+    //Null unless a distance table for this map is in use
+    private DistanceTable distances;
+
+
+    //only for updateState
+    public SnakeState(int height, int width, Snake self, ArrayList<Snake> foes, Coordinate[] obstacles){
+        this(height, width, foes.size());
+        this.self = self;
+        this.obstacles = new boolean[height * width];
+        this.food = new boolean[height * width];
+        for(Coordinate obstacle : obstacles){
+            this.obstacles[toCell(obstacle)] = true;
+        }
+        setFoes(foes);
+    }
+
+    // for future states, filled in by createFutureState
+    SnakeState(int height, int width, int foeCapacity){
+        this.mapHeight = height;
+        this.mapWidth = width;
+        this.self = new Snake("", width);
+        this.ownFoes = new Snake[foeCapacity];
+        for(int i = 0; i < foeCapacity; i++){
+            ownFoes[i] = new Snake("", width);
+        }
+        this.foes = ownFoes;
+        this.selfCells = new byte[height * width];
+        this.ownFoeCells = new byte[height * width];
+        this.foeCells = ownFoeCells;
+    }
+
+
+    public void updateSnakeState(Coordinate selfNewHead, Collection<Snake> foes){
+        self.updatePos(selfNewHead);
+        setFoes(foes);
+
+        if(LOGGER.isDebugEnabled()){
+            LOGGER.debug("UPDATE: Self has length {}", self.getLength());
+        }
+    }
+
+    private void setFoes(Collection<Snake> newFoes){
+        setTrajectories(null); //Rolled out from the old board
+        if(foes.length < newFoes.size()){
+            foes = new Snake[newFoes.size()];
+            ownFoes = foes;
+        }
+        foeCount = 0;
+        for(Snake foe : newFoes){
+            foes[foeCount++] = foe;
+        }
+
+        Arrays.fill(selfCells, (byte) 0);
+        Arrays.fill(foeCells, (byte) 0);
+        addBody(self, selfCells);
+        for(int i = 0; i < foeCount; i++){
+            addBody(foes[i], foeCells);
+        }
+    }
+
+    public void setFood(Coordinate[] foodCoordinates){
+        Arrays.fill(food, false);
+        for(Coordinate coord : foodCoordinates){
+            food[toCell(coord)] = true;
+        }
+    }
+
+    //Creates a new, possible state from a given state and a direction of movement
+    public SnakeState createFutureState(Direction dir){
+        SnakeState futureState = new SnakeState(mapHeight, mapWidth, foeCount);
+        futureState.floodFill = floodFill;
+        createFutureState(dir, futureState);
+        return futureState;
+    }
+
+    /**
+     * Same as {@link #createFutureState(Direction)}, but overwrites the given state
+     * instead of allocating a new one. The target must have the same map size.
+     */
+    public void createFutureState(Direction dir, SnakeState futureState){
+        futureState.obstacles = obstacles;
+        futureState.food = food;
+        futureState.age = age + 1;
+        futureState.trajectories = trajectories;
+        futureState.distances = distances;
+        System.arraycopy(selfCells, 0, futureState.selfCells, 0, selfCells.length);
+
+        Snake newSelf = futureState.self;
+        newSelf.copyFrom(self);
+        newSelf.setDir(dir);
+        futureState.stepSnake(newSelf, futureState.selfCells);
+
+        if(onTable && trajectories.covers(age + 1) && foesFollowTable()){
+            trajectories.attach(futureState, age + 1);
+            return;
+        }
+        stepFoes(futureState);
+    }
+
+    /**
+     * Moves the foes of this state into the given one, judging their moves from this
+     * state, and leaves our snake as it is. Used to roll out the trajectory table, the
+     * moves made are written to {@code moves}, null for a foe that gets trapped.
+     */
+    void createFoeFutureState(SnakeState futureState, Direction[] moves){
+        futureState.obstacles = obstacles;
+        futureState.food = food;
+        futureState.age = age + 1;
+        futureState.trajectories = null;
+        futureState.distances = distances;
+        System.arraycopy(selfCells, 0, futureState.selfCells, 0, selfCells.length);
+        futureState.self.copyFrom(self);
+        futureState.self.setDir(self.getDir());
+
+        int count = foeCount;
+        for(int i = 0; i < count; i++){
+            moves[i] = estimateNewDirection(foes[i].getHeadCell(), copiedDirection(foes[i]));
+        }
+        stepFoes(futureState);
+    }
+
+    //Whether every foe would make the move the trajectory table has for it, judged from this state
+    private boolean foesFollowTable(){
+        for(int i = 0; i < foeCount; i++){
+            Snake foe = foes[i];
+            if(estimateNewDirection(foe.getHeadCell(), copiedDirection(foe)) != trajectories.getMove(age, i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //The direction a copy of the snake gets, see Snake.copyFrom
+    private static Direction copiedDirection(Snake snake){
+        return snake.getLength() >= 2 ? snake.getDir() : Direction.DOWN;
+    }
+
+    //Shares the table's foes and foe occupancy at some depth, they must not be written to
+    void shareFoes(Snake[] tableFoes, int tableFoeCount, byte[] tableFoeCells, boolean killed){
+        foes = tableFoes;
+        foeCount = tableFoeCount;
+        foeCells = tableFoeCells;
+        isKilledFoeState = killed;
+        onTable = true;
+    }
+
+    void setTrajectories(FoeTrajectories trajectories){
+        this.trajectories = trajectories;
+        this.onTable = trajectories != null;
+    }
+
+    private void stepFoes(SnakeState futureState){
+        futureState.onTable = false;
+        futureState.foes = futureState.ownFoes;
+        futureState.foeCells = futureState.ownFoeCells;
+        System.arraycopy(foeCells, 0, futureState.foeCells, 0, foeCells.length);
+        if(futureState.foes.length < foeCount){
+            futureState.growFoeSlots(foeCount);
+        }
+        boolean killed = false;
+
+        futureState.foeCount = 0;
+        for(int i = 0; i < foeCount; i++) {
+            Snake newFoe = futureState.foes[futureState.foeCount];
+            newFoe.copyFrom(foes[i]);
+
+            Direction foeDir = estimateNewDirection(newFoe.getHeadCell(), newFoe.getDir()); //remove all related if this fucks up
+            if(foeDir != null){
+                newFoe.setDir(foeDir);
+                futureState.stepSnake(newFoe, futureState.foeCells);
+                futureState.foeCount++;
+            } else {
+                futureState.removeBody(newFoe, futureState.foeCells);
+                killed = true;
+            }
+        }
+
+        futureState.isKilledFoeState = killed;
+    }
+
+    private void growFoeSlots(int capacity){
+        Snake[] newFoes = Arrays.copyOf(ownFoes, capacity);
+        for(int i = ownFoes.length; i < capacity; i++){
+            newFoes[i] = new Snake("", mapWidth);
+        }
+        ownFoes = newFoes;
+        foes = newFoes;
+    }
+
+    private void stepSnake(Snake snake, byte[] cells){
+        int newHead = getNeighbour(snake.getHeadCell(), snake.getDir());
+        cells[newHead]++;
+        int removed = snake.updatePos(newHead);
+        if(removed >= 0){
+            cells[removed]--;
+        }
+    }
+
+    private void addBody(Snake snake, byte[] cells){
+        for(int i = 0; i < snake.getLength(); i++){
+            cells[snake.getCell(i)]++;
+        }
+    }
+
+    private void removeBody(Snake snake, byte[] cells){
+        for(int i = 0; i < snake.getLength(); i++){
+            cells[snake.getCell(i)]--;
+        }
+    }
+
+    //The direction a foe is expected to move in, judged from this state, or null if it is trapped
+    private Direction estimateNewDirection(int head, Direction dir){
+        if(canMoveFrom(head, dir)){
+            return dir;
+        } else {
+            return estimateFoeDirection(head, dir);
+        }
+    }
+
+    public boolean getIsKilledFoeState(){
+        return isKilledFoeState;
+    }
+
+    private Direction estimateFoeDirection(int foeHead, Direction foeDir){
+        Direction onlyDirection = null;
+        int possibleDirectionsNbr = 0;
+        for(Direction dir : DIRECTIONS){
+            if(canMoveFrom(foeHead, dir)){
+                if(possibleDirectionsNbr == 0){
+                    onlyDirection = dir;
+                }
+                possibleDirectionsNbr++;
+            }
+        }
+
+        if (possibleDirectionsNbr > 1){
+            Direction targetDirection = findTargetDirection(foeHead, foeDir);
+            //Only a snake of length one can have the target direction blocked
+            Direction estimate = canMoveFrom(foeHead, targetDirection) ? targetDirection : onlyDirection;
+            return distances != null ? findInterceptDirection(foeHead, estimate) : estimate;
+        }
+        return onlyDirection;
+    }
+
+    //The free direction that takes the foe closest to our head around the obstacles, the estimate on a tie
+    private Direction findInterceptDirection(int foeHead, Direction estimate){
+        int playerHead = self.getHeadCell();
+        Direction best = estimate;
+        int bestDistance = distances.distance(getNeighbour(foeHead, estimate), playerHead);
+        for(Direction dir : DIRECTIONS){
+            if(canMoveFrom(foeHead, dir)){
+                int distance = distances.distance(getNeighbour(foeHead, dir), playerHead);
+                if(distance < bestDistance){
+                    best = dir;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    private Direction findTargetDirection(int foeHead, Direction foeDir){
+        int playerHead = self.getHeadCell();
+        if(foeDir.equals(Direction.DOWN) ||foeDir.equals(Direction.UP)){
+            if(playerHead % mapWidth <= foeHead % mapWidth){
+                return Direction.LEFT;
+            } else {
+                return Direction.RIGHT;
+            }
+        } else {
+            if(playerHead / mapWidth <= foeHead / mapWidth){
+                return Direction.UP;
+            } else {
+                return Direction.DOWN;
+            }
+        }
+    }
+
+    public boolean canIMoveInDirection(Direction dir){
+        return canSnakeMoveInDirection(self, dir);
+    }
+
+    private boolean canSnakeMoveInDirection(Snake snake, Direction dir){
+        return canMoveFrom(snake.getHeadCell(), dir);
+    }
+
+    private boolean canMoveFrom(int head, Direction dir){
+        int neighbour = getNeighbour(head, dir);
+        return neighbour >= 0 && !isBlocked(neighbour);
+    }
+
+    /**
+     * Returns the cell next to the given one in the given direction, or -1 if that is off the map.
+     */
+    public int getNeighbour(int cell, Direction dir){
+        int x = cell % mapWidth;
+        switch (dir){
+            case LEFT:
+                return x > 0 ? cell - 1 : -1;
+            case RIGHT:
+                return x < mapWidth - 1 ? cell + 1 : -1;
+            case UP:
+                return cell >= mapWidth ? cell - mapWidth : -1;
+            case DOWN:
+                return cell + mapWidth < mapWidth * mapHeight ? cell + mapWidth : -1;
+            default:
+                return -1;
+        }
+    }
+
+    //TODO: Generalize this for any snake?
+    //In tight regions, body cells that will have retracted by the time we get there count as open, see FloodFill
+    public int getOpenSpacesinDir(Direction dir){
+        int tile = getNeighbour(self.getHeadCell(), dir);
+        if(tile < 0){
+            return 0;
+        }
+        FloodFill fill = getFloodFill();
+        EngineEvents events = EngineEvents.get();
+        if(!events.isEnabled(EngineEvents.OPEN_SPACES)){
+            return fill.countOpenSpaces(this, tile);
+        }
+
+        Object event = events.begin(EngineEvents.OPEN_SPACES);
+        long flooded = fill.getCellsFlooded();
+        int openSpaces = fill.countOpenSpaces(this, tile);
+        events.openSpaces(event, self.getLifeTime() - age, age, fill.getCellsFlooded() - flooded, dir, openSpaces);
+        return openSpaces;
+    }
+
+    private FloodFill getFloodFill(){
+        if(floodFill == null || !floodFill.fits(this)){
+            floodFill = new FloodFill(mapWidth * mapHeight);
+        }
+        return floodFill;
+    }
+
+    void setDistances(DistanceTable distances){
+        this.distances = distances;
+    }
+
+    boolean[] getObstacleCells(){
+        return obstacles;
+    }
+
+    void setFloodFill(FloodFill floodFill){
+        this.floodFill = floodFill;
+    }
+
+
+    public boolean isCoordinateOutOfBounds(Coordinate coordinate) {
+        return coordinate.x < 0 || coordinate.x >= mapWidth || coordinate.y < 0 || coordinate.y >= mapHeight;
+    }
+
+    private int toCell(Coordinate coordinate){
+        return coordinate.x + coordinate.y * mapWidth;
+    }
+
+
+    /**
+     * True if an obstacle or any snake is on the cell.
+     */
+    public boolean isBlocked(int cell){
+        return obstacles[cell] || selfCells[cell] != 0 || foeCells[cell] != 0;
+    }
+
+    /**
+     * True if an obstacle or a foe, but not ourselves, is on the cell.
+     */
+    public boolean isBlockedByOthers(int cell){
+        return (obstacles[cell] || foeCells[cell] != 0) && selfCells[cell] == 0;
+    }
+
+    /**
+     * True if our own body is on the cell and nothing else.
+     */
+    public boolean isBlockedOnlyBySelf(int cell){
+        return selfCells[cell] != 0 && foeCells[cell] == 0 && !obstacles[cell];
+    }
+
+    public boolean isFood(int cell){
+        return food[cell];
+    }
+
+    public boolean isObstacle(int cell){
+        return obstacles[cell];
+    }
+
+    public int getMapHeight(){
+        return mapHeight;
+    }
+
+    public int getMapWidth(){
+        return mapWidth;
+    }
+
+    public Snake getSelf(){
+        return self;
+    }
+
+    public int getAge(){
+        return age;
+    }
+
+    public int getFoeCount(){
+        return foeCount;
+    }
+
+    public Snake getFoe(int i){
+        return foes[i];
+    }
+
+    Snake[] getFoes(){
+        return foes;
+    }
+
+    byte[] getFoeCells(){
+        return foeCells;
+    }
+
+}
@@ -0,0 +1,342 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * Endgame mode for when no foe can reach the region our head is in. Then the best we
+ * can do is to fill that region as completely as possible, so instead of following the
+ * normal search we plan the longest path we can survive in it and follow that plan.
+ *
+ * Our tail keeps retracting, on the same schedule as Snake.increaseLife (not every
+ * third tick, and not on a tick we eat), so a cell we occupy opens up again once enough
+ * retractions have happened. Every cell gets a release threshold: it can be entered
+ * once the retractions along the path have reached it. Own body cells start out with
+ * the length of body behind them, and cells on the path get one when we enter them.
+ *
+ * The solver is a bounded depth first search that tries the neighbour with the fewest
+ * onward exits first. A branch is pruned when the region cannot hold the body for long
+ * enough to beat the best plan: the body grows at least one cell every third tick and
+ * must fit in the region, and since a body alternates colours on a checkerboard, in at
+ * most one more cell of the majority colour than of the minority colour. Our own body
+ * keeps retracting, so every cell of the region can still be reached later, and the
+ * room this leaves is worked out once per solve.
+ *
+ * A plan only looks a limited number of moves ahead, enough for the current body to
+ * retract completely a couple of times over. It is kept between ticks and solved again
+ * once half of it has been played, or when we leave it or its next cell is taken.
+ * All buffers are allocated once per board size.
+ */
+public class SpaceFiller {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpaceFiller.class);
+
+    //Larger regions are left to the normal engine, which plays open space well enough
+    private static final int MAX_REGION_SIZE = 600;
+    private static final int NODE_BUDGET = 20000;
+    private static final int PLAN_MOVES_PER_BODY_CELL = 3;
+    private static final int PLAN_EXTRA_MOVES = 30;
+
+    private final int width;
+    private final int cellCount;
+
+    //Region of the last isolation check, marked with regionGeneration
+    private final int[] region;
+    private int regionGeneration;
+    private int regionSize;
+
+    private final int[] queue;
+    //Most cells a body can cover in the region, counting checkerboard colours
+    private int room;
+
+    //Retractions needed before a cell can be entered, and how often the path has entered it
+    private final int[] threshold;
+    private final int[] visits;
+    private int selfLength;
+    private long selfLifeTime;
+
+    //Search stack, frame d holds path[d], the tail retractions so far and up to four ordered candidates
+    private final int[] path;
+    private final int[] retractions;
+    private final int[] previousThreshold;
+    private final int[] candidates;
+    private final int[] candidateCount;
+    private final int[] nextCandidate;
+    private final int[] bestPath;
+    private int bestLength;
+    private int horizon;
+
+    //The cached plan, plan[planIndex] is where our head should be now
+    private final int[] plan;
+    private int planLength;
+    private int planIndex;
+
+    public SpaceFiller(int width, int height){
+        this.width = width;
+        this.cellCount = width * height;
+        this.region = new int[cellCount];
+        this.queue = new int[cellCount];
+        this.threshold = new int[cellCount];
+        this.visits = new int[cellCount];
+        this.path = new int[cellCount + 1];
+        this.retractions = new int[cellCount + 1];
+        this.previousThreshold = new int[cellCount + 1];
+        this.candidates = new int[(cellCount + 1) * 4];
+        this.candidateCount = new int[cellCount + 1];
+        this.nextCandidate = new int[cellCount + 1];
+        this.bestPath = new int[cellCount + 1];
+        this.plan = new int[cellCount + 1];
+    }
+
+    /**
+     * Forgets the cached plan, for a new game.
+     */
+    public void reset(){
+        planLength = 0;
+    }
+
+    /**
+     * Returns the next move of the fill plan, or null if a foe can reach our region
+     * and the normal engine should decide.
+     */
+    public Direction getMove(SnakeState state, long deadlineNanos){
+        int head = state.getSelf().getHeadCell();
+        if(!isIsolated(state, head)){
+            planLength = 0;
+            return null;
+        }
+
+        if(!isPlanValid(state, head)){
+            solve(state, head, deadlineNanos);
+            if(bestLength == 0){
+                planLength = 0;
+                return null;
+            }
+            plan[0] = head;
+            System.arraycopy(bestPath, 1, plan, 1, bestLength);
+            planLength = bestLength + 1;
+            planIndex = 0;
+
+            if(LOGGER.isDebugEnabled()){
+                LOGGER.debug("Sealed off in a region of {}, planned {} moves", regionSize, bestLength);
+            }
+        }
+
+        int next = plan[planIndex + 1];
+        planIndex++;
+        return directionBetween(head, next);
+    }
+
+    /**
+     * Keeps the plan in step when the move was made without asking for it: it is kept if
+     * it goes from head to next, and dropped otherwise.
+     */
+    public void follow(int head, int next){
+        if(planLength > 0 && planIndex + 1 < planLength && plan[planIndex] == head && plan[planIndex + 1] == next){
+            planIndex++;
+        } else {
+            planLength = 0;
+        }
+    }
+
+    //Later cells of the plan may still be our own body, they were timed to be free when we get there
+    private boolean isPlanValid(SnakeState state, int head){
+        return planLength > 0 && 2 * planIndex < planLength && plan[planIndex] == head
+                && !state.isBlocked(plan[planIndex + 1]);
+    }
+
+    //Floods our region, own body included, once and checks that no foe head is next to it
+    private boolean isIsolated(SnakeState state, int head){
+        regionGeneration = nextGeneration(region, regionGeneration);
+        int tail = markRegion(state, head, 0);
+        for(int i = 0; i < tail; i++){
+            tail = markRegion(state, queue[i], tail);
+        }
+        regionSize = tail;
+
+        if(regionSize == 0 || regionSize > MAX_REGION_SIZE){
+            return false;
+        }
+
+        for(int i = 0; i < state.getFoeCount(); i++){
+            int foeHead = state.getFoe(i).getHeadCell();
+            for(Direction dir : SnakeState.DIRECTIONS){
+                int neighbour = state.getNeighbour(foeHead, dir);
+                if(neighbour >= 0 && region[neighbour] == regionGeneration){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int markRegion(SnakeState state, int cell, int tail){
+        for(Direction dir : SnakeState.DIRECTIONS){
+            int neighbour = state.getNeighbour(cell, dir);
+            if(neighbour >= 0 && region[neighbour] != regionGeneration
+                    && (!state.isBlocked(neighbour) || state.isBlockedOnlyBySelf(neighbour))){
+                region[neighbour] = regionGeneration;
+                queue[tail++] = neighbour;
+            }
+        }
+        return tail;
+    }
+
+    private void solve(SnakeState state, int head, long deadlineNanos){
+        Snake self = state.getSelf();
+        selfLength = self.getLength();
+        selfLifeTime = self.getLifeTime();
+        for(int i = 0; i < regionSize; i++){
+            threshold[queue[i]] = 0;
+            visits[queue[i]] = 0;
+        }
+        for(int i = 0; i < selfLength; i++){
+            int cell = self.getCell(i);
+            if(i == 0 || region[cell] == regionGeneration){
+                threshold[cell] = selfLength - i;
+            }
+        }
+
+        //The body cannot outgrow the region, so there is no point in planning further than that
+        horizon = Math.min(PLAN_MOVES_PER_BODY_CELL * selfLength + PLAN_EXTRA_MOVES,
+                3 * Math.max(0, regionSize + 1 - selfLength) + 2);
+        horizon = Math.min(horizon, cellCount);
+        room = countRoom();
+        bestLength = 0;
+        int depth = 0;
+        int nodes = 0;
+        path[0] = head;
+        retractions[0] = 0;
+        pushFrame(state, 0, head);
+
+        while(nodes < NODE_BUDGET && bestLength < horizon){
+            if(nextCandidate[depth] < candidateCount[depth]){
+                int cell = candidates[depth * 4 + nextCandidate[depth]++];
+                nodes++;
+
+                enter(state, depth + 1, cell);
+                if(depth + 1 > bestLength){
+                    bestLength = depth + 1;
+                    System.arraycopy(path, 1, bestPath, 1, bestLength);
+                }
+
+                if(depth + 1 + upperBound(depth + 1) <= bestLength){
+                    leave(depth + 1);
+                    continue;
+                }
+
+                depth++;
+                pushFrame(state, depth, cell);
+
+                if((nodes & 1023) == 0 && System.nanoTime() - deadlineNanos > 0){
+                    break;
+                }
+            } else {
+                if(depth == 0){
+                    break;
+                }
+                leave(depth);
+                depth--;
+            }
+        }
+    }
+
+    private void enter(SnakeState state, int depth, int cell){
+        boolean eats = visits[cell] == 0 && state.isFood(cell);
+        boolean retracts = (selfLifeTime + depth - 1) % 3 != 0 && !eats;
+        path[depth] = cell;
+        retractions[depth] = retractions[depth - 1] + (retracts ? 1 : 0);
+        previousThreshold[depth] = threshold[cell];
+        threshold[cell] = selfLength + depth;
+        visits[cell]++;
+    }
+
+    private void leave(int depth){
+        int cell = path[depth];
+        threshold[cell] = previousThreshold[depth];
+        visits[cell]--;
+    }
+
+    //Candidates for the cell after path[depth], the one with fewest onward exits first
+    private void pushFrame(SnakeState state, int depth, int cell){
+        int base = depth * 4;
+        int count = 0;
+        for(Direction dir : SnakeState.DIRECTIONS){
+            int neighbour = state.getNeighbour(cell, dir);
+            if(canEnter(neighbour, depth)){
+                int exits = countExits(state, neighbour, depth);
+                int i = count++;
+                while(i > 0 && countExits(state, candidates[base + i - 1], depth) > exits){
+                    candidates[base + i] = candidates[base + i - 1];
+                    i--;
+                }
+                candidates[base + i] = neighbour;
+            }
+        }
+        candidateCount[depth] = count;
+        nextCandidate[depth] = 0;
+    }
+
+    private int countExits(SnakeState state, int cell, int depth){
+        int exits = 0;
+        for(Direction dir : SnakeState.DIRECTIONS){
+            if(canEnter(state.getNeighbour(cell, dir), depth)){
+                exits++;
+            }
+        }
+        return exits;
+    }
+
+    //Whether the cell after path[depth] can be the given one
+    private boolean canEnter(int cell, int depth){
+        return cell >= 0 && region[cell] == regionGeneration && retractions[depth] >= threshold[cell];
+    }
+
+    /**
+     * The most moves that can still follow path[depth]. The body grows by at least one
+     * cell every three moves and has to fit in the room of the region.
+     */
+    private int upperBound(int depth){
+        int length = selfLength + depth - retractions[depth];
+        return Math.max(0, 3 * (room - length) + 2);
+    }
+
+    private int countRoom(){
+        int evenCells = 0;
+        int oddCells = 0;
+        for(int i = 0; i < regionSize; i++){
+            if(colour(queue[i]) == 0){
+                evenCells++;
+            } else {
+                oddCells++;
+            }
+        }
+        return Math.min(evenCells + oddCells, 2 * Math.min(evenCells, oddCells) + 1);
+    }
+
+    private int colour(int cell){
+        return (cell % width + cell / width) & 1;
+    }
+
+    private Direction directionBetween(int from, int to){
+        if(to == from - 1){
+            return Direction.LEFT;
+        } else if(to == from + 1){
+            return Direction.RIGHT;
+        } else if(to < from){
+            return Direction.UP;
+        }
+        return Direction.DOWN;
+    }
+
+    private static int nextGeneration(int[] marks, int generation){
+        generation++;
+        if(generation == 0){
+            Arrays.fill(marks, 0);
+            generation = 1;
+        }
+        return generation;
+    }
+}
@@ -0,0 +1,130 @@
+package se.cygni.snake;
+
+import java.util.*;
+
+/**
+ * Generates random but plausible boards: scattered obstacles, food and a handful
+ * of snakes with contiguous bodies. Used to exercise the engine without a server.
+ */
+public class SyntheticBoards {
+
+    private static final double OBSTACLE_DENSITY = 0.03;
+    private static final double FOOD_DENSITY = 0.02;
+    private static final int MAX_SNAKE_LENGTH = 20;
+
+    private final int width;
+    private final int height;
+    private final Random random;
+
+    private Coordinate[] obstacles;
+    private SnakeState state;
+    private HashSet<Coordinate> foodSet;
+
+    public SyntheticBoards(int width, int height, long seed){
+        this.width = width;
+        this.height = height;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates the next board. Read it with {@link #getState()} and {@link #getFoodSet()}.
+     */
+    public void next(int foeCount){
+        HashSet<Coordinate> taken = new HashSet<>();
+
+        obstacles = new Coordinate[(int) (width * height * OBSTACLE_DENSITY)];
+        for(int i = 0; i < obstacles.length; i++){
+            obstacles[i] = randomFreeCoordinate(taken);
+            taken.add(obstacles[i]);
+        }
+        placeSnakesAndFood(foeCount, taken);
+    }
+
+    /**
+     * Generates the next board with the obstacles of the last one, as in the ticks of a game.
+     */
+    public void nextOnSameMap(int foeCount){
+        placeSnakesAndFood(foeCount, new HashSet<>(Arrays.asList(obstacles)));
+    }
+
+    private void placeSnakesAndFood(int foeCount, HashSet<Coordinate> taken){
+        Snake self = randomSnake("self", taken);
+        ArrayList<Snake> foes = new ArrayList<>();
+        for(int i = 0; i < foeCount; i++){
+            foes.add(randomSnake("foe" + i, taken));
+        }
+
+        foodSet = new HashSet<>();
+        int foodCount = (int) (width * height * FOOD_DENSITY);
+        for(int i = 0; i < foodCount; i++){
+            Coordinate food = randomFreeCoordinate(taken);
+            taken.add(food);
+            foodSet.add(food);
+        }
+
+        state = new SnakeState(height, width, self, foes, obstacles);
+        state.setFood(foodSet.toArray(new Coordinate[foodSet.size()]));
+    }
+
+    public SnakeState getState(){
+        return state;
+    }
+
+    public HashSet<Coordinate> getFoodSet(){
+        return foodSet;
+    }
+
+    private Snake randomSnake(String id, HashSet<Coordinate> taken){
+        int length = 1 + random.nextInt(MAX_SNAKE_LENGTH);
+        ArrayList<Coordinate> spread = new ArrayList<>();
+        Coordinate part = randomFreeCoordinate(taken);
+        spread.add(part);
+        taken.add(part);
+
+        while(spread.size() < length){
+            Coordinate next = randomFreeNeighbour(part, taken);
+            if(next == null){
+                break;
+            }
+            spread.add(next);
+            taken.add(next);
+            part = next;
+        }
+
+        long lifeTime = random.nextInt(200);
+        return new Snake(id, spread.toArray(new Coordinate[spread.size()]), lifeTime, width);
+    }
+
+    private Coordinate randomFreeNeighbour(Coordinate coord, HashSet<Coordinate> taken){
+        int start = random.nextInt(4);
+        for(int i = 0; i < 4; i++){
+            Coordinate next;
+            switch (SnakeState.DIRECTIONS[(start + i) % 4]){
+                case LEFT:
+                    next = coord.translateBy(-1, 0);
+                    break;
+                case RIGHT:
+                    next = coord.translateBy(1, 0);
+                    break;
+                case UP:
+                    next = coord.translateBy(0, -1);
+                    break;
+                default:
+                    next = coord.translateBy(0, 1);
+                    break;
+            }
+            if(next.x >= 0 && next.x < width && next.y >= 0 && next.y < height && !taken.contains(next)){
+                return next;
+            }
+        }
+        return null;
+    }
+
+    private Coordinate randomFreeCoordinate(HashSet<Coordinate> taken){
+        Coordinate coord;
+        do {
+            coord = new Coordinate(random.nextInt(width), random.nextInt(height));
+        } while (taken.contains(coord));
+        return coord;
+    }
+}
@@ -0,0 +1,85 @@
+package se.cygni.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the open space counts: the cell by cell fill against the row
+ * parallel {@link BitFloodFill}. Every invocation runs the same fixed set of counts,
+ * from free cells picked at random on either synthetic boards or the replay corpus.
+ *
+ * Run with {@code ./gradlew jmh}, from the project directory so the corpus is found.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloodFillBenchmark {
+
+    private static final int COUNTS = 1024;
+
+    @Param({"synthetic", "replay"})
+    public String boards;
+
+    private SnakeState[] states;
+    private int[] cells;
+    private FloodFill scalar;
+    private BitFloodFill bits;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<SnakeState> source = new ArrayList<>();
+        if(boards.equals("replay")){
+            source.addAll(BoardRecorder.readAll(new File("src/perf/replay/corpus.txt")));
+        } else {
+            SyntheticBoards generator = new SyntheticBoards(46, 34, 1234);
+            for(int i = 0; i < 64; i++){
+                generator.next(1 + i % 5);
+                source.add(generator.getState());
+            }
+        }
+
+        Random random = new Random(42);
+        states = new SnakeState[COUNTS];
+        cells = new int[COUNTS];
+        for(int i = 0; i < COUNTS; i++){
+            SnakeState state = source.get(random.nextInt(source.size()));
+            int cell;
+            do {
+                cell = random.nextInt(state.getMapWidth() * state.getMapHeight());
+            } while(state.isBlocked(cell));
+            states[i] = state;
+            cells[i] = cell;
+        }
+        scalar = new FloodFill(states[0].getMapWidth() * states[0].getMapHeight());
+        bits = new BitFloodFill();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNTS)
+    public int scalar(){
+        int total = 0;
+        for(int i = 0; i < COUNTS; i++){
+            total += scalar.countAroundScalar(states[i], cells[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNTS)
+    public int bitParallel(){
+        int total = 0;
+        for(int i = 0; i < COUNTS; i++){
+            total += bits.countAround(states[i], cells[i]);
+        }
+        return total;
+    }
+}
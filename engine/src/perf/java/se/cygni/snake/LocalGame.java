@@ -0,0 +1,288 @@
+package se.cygni.snake;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A headless game between engines, close enough to the server rules for self-play:
+ * all snakes move at once, grow on the same schedule as {@link Snake} and die on
+ * walls, obstacles and bodies. A head-on collision kills both snakes.
+ *
+ * A snake scores one point per tick it survives, plus bonuses for food, kills and
+ * for being the last one alive.
+ */
+public class LocalGame {
+
+    private static final double OBSTACLE_DENSITY = 0.03;
+    private static final double FOOD_DENSITY = 0.02;
+    private static final double FOOD_SPAWN_CHANCE = 0.3;
+    private static final int FOOD_POINTS = 2;
+    private static final int KILL_POINTS = 20;
+    private static final int LAST_ALIVE_POINTS = 20;
+
+    private final int width;
+    private final int height;
+    private final int maxTicks;
+    private final long decisionBudgetNanos;
+    private final Random random;
+
+    private final boolean[] obstacleCells;
+    private final Coordinate[] obstacles;
+    private final boolean[] food;
+    private final int[] occupancy;
+    private final int[] owner;
+
+    private final SnakeEngine[] engines;
+    private final Snake[] snakes;
+    private final boolean[] alive;
+    private final int[] scores;
+    private int ticks;
+
+    private BoardRecorder recorder;
+    private int recordEvery;
+
+    public LocalGame(int width, int height, int maxTicks, long decisionBudgetMillis, long seed, SnakeEngine[] engines){
+        this.width = width;
+        this.height = height;
+        this.maxTicks = maxTicks;
+        this.decisionBudgetNanos = TimeUnit.MILLISECONDS.toNanos(decisionBudgetMillis);
+        this.random = new Random(seed);
+        this.engines = engines;
+
+        int cells = width * height;
+        this.obstacleCells = new boolean[cells];
+        this.food = new boolean[cells];
+        this.occupancy = new int[cells];
+        this.owner = new int[cells];
+
+        this.obstacles = new Coordinate[(int) (cells * OBSTACLE_DENSITY)];
+        for(int i = 0; i < obstacles.length; i++){
+            int cell = randomFreeCell();
+            obstacleCells[cell] = true;
+            obstacles[i] = toCoordinate(cell);
+        }
+
+        this.snakes = new Snake[engines.length];
+        this.alive = new boolean[engines.length];
+        this.scores = new int[engines.length];
+        for(int i = 0; i < engines.length; i++){
+            int cell = randomFreeCell();
+            snakes[i] = new Snake("snake" + i, new Coordinate[]{toCoordinate(cell)}, 0, width);
+            alive[i] = true;
+            occupancy[cell]++;
+        }
+
+        for(int i = 0; i < (int) (cells * FOOD_DENSITY); i++){
+            food[randomFreeCell()] = true;
+        }
+    }
+
+    /**
+     * Records the board of every engine on every n:th tick.
+     */
+    public void setRecorder(BoardRecorder recorder, int everyNthTick){
+        this.recorder = recorder;
+        this.recordEvery = everyNthTick;
+    }
+
+    /**
+     * Plays the game to the end and returns the score of each engine, in the order given.
+     */
+    public int[] play(){
+        //Obstacles stay put for the whole game, so every engine can share one table
+        DistanceTable distances = DistanceTable.build(stateFor(0, listFood()));
+        for(SnakeEngine engine : engines){
+            engine.setDistanceTable(distances);
+        }
+
+        int[] newHeads = new int[snakes.length];
+        while(ticks < maxTicks && aliveCount() > (snakes.length > 1 ? 1 : 0)){
+            Coordinate[] foodCoordinates = listFood();
+            for(int i = 0; i < snakes.length; i++){
+                if(alive[i]){
+                    SnakeState state = stateFor(i, foodCoordinates);
+                    record(state);
+                    Direction dir = engines[i].getBestPossibleDirection(state,
+                            System.nanoTime() + decisionBudgetNanos);
+                    newHeads[i] = neighbour(snakes[i].getHeadCell(), dir);
+                }
+            }
+            step(newHeads);
+            ticks++;
+        }
+
+        if(snakes.length > 1 && aliveCount() == 1){
+            for(int i = 0; i < snakes.length; i++){
+                if(alive[i]){
+                    scores[i] += LAST_ALIVE_POINTS;
+                }
+            }
+        }
+        return scores.clone();
+    }
+
+    public int getTicks(){
+        return ticks;
+    }
+
+    private void record(SnakeState state){
+        if(recorder == null || ticks % recordEvery != 0){
+            return;
+        }
+        try {
+            recorder.record(state);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private SnakeState stateFor(int self, Coordinate[] foodCoordinates){
+        ArrayList<Snake> foes = new ArrayList<>();
+        for(int i = 0; i < snakes.length; i++){
+            if(i != self && alive[i]){
+                foes.add(new Snake(snakes[i]));
+            }
+        }
+        SnakeState state = new SnakeState(height, width, new Snake(snakes[self]), foes, obstacles);
+        state.setFood(foodCoordinates);
+        return state;
+    }
+
+    private void step(int[] newHeads){
+        for(int i = 0; i < snakes.length; i++){
+            if(!alive[i]){
+                continue;
+            }
+            int head = newHeads[i];
+            if(head < 0){
+                die(i);
+                continue;
+            }
+            boolean eats = food[head];
+            if(eats){
+                food[head] = false;
+                scores[i] += FOOD_POINTS;
+            }
+            snakes[i].setHasEaten(eats);
+            occupancy[head]++;
+            int removed = snakes[i].updatePos(head);
+            if(removed >= 0){
+                occupancy[removed]--;
+            }
+        }
+
+        //Owners are only needed for kill credit, so heads are written last and win
+        for(int i = 0; i < snakes.length; i++){
+            if(alive[i]){
+                for(int j = snakes[i].getLength() - 1; j >= 0; j--){
+                    owner[snakes[i].getCell(j)] = i;
+                }
+            }
+        }
+
+        boolean[] dies = new boolean[snakes.length];
+        for(int i = 0; i < snakes.length; i++){
+            if(!alive[i] || newHeads[i] < 0){
+                continue;
+            }
+            int head = snakes[i].getHeadCell();
+            if(obstacleCells[head] || occupancy[head] > 1){
+                dies[i] = true;
+                int hit = bodyOwner(i, head);
+                if(hit >= 0){
+                    scores[hit] += KILL_POINTS;
+                }
+            }
+        }
+
+        for(int i = 0; i < snakes.length; i++){
+            if(dies[i]){
+                die(i);
+            } else if(alive[i]){
+                scores[i]++;
+            }
+        }
+
+        if(random.nextDouble() < FOOD_SPAWN_CHANCE){
+            int cell = randomFreeCell();
+            if(cell >= 0){
+                food[cell] = true;
+            }
+        }
+    }
+
+    //The other snake whose body, not head, is on the cell
+    private int bodyOwner(int self, int cell){
+        for(int i = 0; i < snakes.length; i++){
+            if(i == self || !alive[i]){
+                continue;
+            }
+            for(int j = 1; j < snakes[i].getLength(); j++){
+                if(snakes[i].getCell(j) == cell){
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void die(int i){
+        for(int j = 0; j < snakes[i].getLength(); j++){
+            occupancy[snakes[i].getCell(j)]--;
+        }
+        snakes[i].kill();
+        alive[i] = false;
+    }
+
+    private int aliveCount(){
+        int count = 0;
+        for(boolean a : alive){
+            if(a){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Coordinate[] listFood(){
+        ArrayList<Coordinate> list = new ArrayList<>();
+        for(int cell = 0; cell < food.length; cell++){
+            if(food[cell]){
+                list.add(toCoordinate(cell));
+            }
+        }
+        return list.toArray(new Coordinate[list.size()]);
+    }
+
+    private int neighbour(int cell, Direction dir){
+        int x = cell % width;
+        switch (dir){
+            case LEFT:
+                return x > 0 ? cell - 1 : -1;
+            case RIGHT:
+                return x < width - 1 ? cell + 1 : -1;
+            case UP:
+                return cell >= width ? cell - width : -1;
+            default:
+                return cell + width < width * height ? cell + width : -1;
+        }
+    }
+
+    //A random empty cell, or -1 if none was found. Only the food spawn can fail, the board starts out mostly empty.
+    private int randomFreeCell(){
+        for(int tries = 0; tries < 1000; tries++){
+            int cell = random.nextInt(width * height);
+            if(!obstacleCells[cell] && !food[cell] && occupancy[cell] == 0){
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    private Coordinate toCoordinate(int cell){
+        return new Coordinate(cell % width, cell / width);
+    }
+}
@@ -0,0 +1,217 @@
+package se.cygni.snake;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a corpus of recorded boards through the engine and compares the chosen moves
+ * and the p50/p99 decision latency with a stored baseline. Fails (exit code 1) if more
+ * moves than allowed differ from the baseline, or, when a latency tolerance is given, if
+ * a latency percentile is more than the tolerance above its baseline.
+ *
+ * The search runs without a deadline, so the moves only depend on the engine, and the
+ * engine is reset between boards. Every board is searched with the distance table of its
+ * map, as in a game. Latencies do depend on the machine and its load, so they are only
+ * reported unless a tolerance is given, and the baseline should then be recorded on the
+ * machine that runs the check.
+ *
+ * Usage:
+ * ReplayCheck corpus baseline [allowed move divergences] [latency tolerance]
+ * ReplayCheck --update corpus baseline
+ * ReplayCheck --record-corpus corpus [games]
+ */
+public class ReplayCheck {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int MAX_SEARCH_DEPTH = 30;
+    private static final int MAX_REPORTED_DIVERGENCES = 10;
+
+    //Corpus games, with every snake's board recorded every RECORD_EVERY ticks
+    private static final int CORPUS_SNAKES = 4;
+    private static final int CORPUS_MAX_TICKS = 300;
+    private static final int RECORD_EVERY = 15;
+
+    public static void main(String[] args) throws IOException {
+        if(args.length >= 2 && args[0].equals("--record-corpus")){
+            recordCorpus(new File(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 3);
+            return;
+        }
+        if(args.length >= 3 && args[0].equals("--update")){
+            Result result = replay(BoardRecorder.readAll(new File(args[1])));
+            result.write(new File(args[2]));
+            System.out.println("Baseline written: " + result.summary());
+            return;
+        }
+        if(args.length < 2){
+            System.out.println("Usage: ReplayCheck corpus baseline [allowed move divergences] [latency tolerance]");
+            System.exit(2);
+        }
+
+        int allowedDivergences = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        //Negative for no latency check
+        double tolerance = args.length > 3 ? Double.parseDouble(args[3]) : -1;
+        Result baseline = Result.read(new File(args[1]));
+        Result result = replay(BoardRecorder.readAll(new File(args[0])));
+
+        System.out.println("Baseline: " + baseline.summary());
+        System.out.println("Current:  " + result.summary());
+        if(!compare(baseline, result, tolerance, allowedDivergences)){
+            System.out.println("Replay check failed, rerun with -PupdateReplayBaseline if the change is intended");
+            System.exit(1);
+        }
+    }
+
+    private static boolean compare(Result baseline, Result result, double tolerance, int allowedDivergences){
+        boolean passed = true;
+        if(baseline.moves.length != result.moves.length){
+            System.out.println(String.format("The baseline has %d moves but the corpus %d boards",
+                    baseline.moves.length, result.moves.length));
+            return false;
+        }
+
+        int divergences = 0;
+        for(int i = 0; i < result.moves.length; i++){
+            if(baseline.moves[i] != result.moves[i]){
+                if(divergences < MAX_REPORTED_DIVERGENCES){
+                    System.out.println(String.format("Board %d: %s, baseline %s", i, result.moves[i], baseline.moves[i]));
+                }
+                divergences++;
+            }
+        }
+        if(divergences > allowedDivergences){
+            System.out.println(String.format("%d moves differ from the baseline, %d allowed", divergences, allowedDivergences));
+            passed = false;
+        }
+
+        if(tolerance < 0){
+            System.out.println("Latency not checked, pass a tolerance to compare it with the baseline");
+            return passed;
+        }
+        passed &= checkLatency("p50", baseline.p50Nanos, result.p50Nanos, tolerance);
+        passed &= checkLatency("p99", baseline.p99Nanos, result.p99Nanos, tolerance);
+        return passed;
+    }
+
+    private static boolean checkLatency(String name, long baseline, long current, double tolerance){
+        long limit = (long) (baseline * (1 + tolerance));
+        if(current > limit){
+            System.out.println(String.format("%s latency regressed: %.3f ms, limit %.3f ms",
+                    name, current / 1e6, limit / 1e6));
+            return false;
+        }
+        return true;
+    }
+
+    private static Result replay(List<SnakeState> boards){
+        SnakeEngine engine = new SnakeEngine(MAX_SEARCH_DEPTH);
+        long deadline = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+        Direction[] moves = new Direction[boards.size()];
+        DistanceTable[] tables = new DistanceTable[boards.size()];
+        for(int i = 0; i < boards.size(); i++){
+            tables[i] = DistanceTable.build(boards.get(i));
+        }
+
+        for(int round = 0; round < WARMUP_ROUNDS; round++){
+            for(int i = 0; i < boards.size(); i++){
+                engine.reset();
+                engine.setDistanceTable(tables[i]);
+                engine.getBestPossibleDirection(boards.get(i), deadline);
+            }
+        }
+
+        long[] latencies = new long[MEASURED_ROUNDS * boards.size()];
+        int sample = 0;
+        for(int round = 0; round < MEASURED_ROUNDS; round++){
+            for(int i = 0; i < boards.size(); i++){
+                engine.reset();
+                engine.setDistanceTable(tables[i]);
+                long start = System.nanoTime();
+                Direction move = engine.getBestPossibleDirection(boards.get(i), deadline);
+                latencies[sample++] = System.nanoTime() - start;
+
+                if(round == 0){
+                    moves[i] = move;
+                } else if(moves[i] != move){
+                    throw new IllegalStateException("The engine is not deterministic on board " + i);
+                }
+            }
+        }
+
+        System.out.println("Stages: " + engine.getStageStats());
+        Arrays.sort(latencies);
+        return new Result(moves, percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static long percentile(long[] sorted, double p){
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static void recordCorpus(File corpus, int games) throws IOException {
+        Random random = new Random(2017);
+        try (BoardRecorder recorder = new BoardRecorder(corpus)) {
+            for(int g = 0; g < games; g++){
+                SnakeEngine[] engines = new SnakeEngine[CORPUS_SNAKES];
+                for(int i = 0; i < engines.length; i++){
+                    engines[i] = new SnakeEngine(MAX_SEARCH_DEPTH);
+                }
+                LocalGame game = new LocalGame(46, 34, CORPUS_MAX_TICKS, 200, random.nextLong(), engines);
+                game.setRecorder(recorder, RECORD_EVERY);
+                game.play();
+                System.out.println(String.format("Game %d recorded, %d ticks", g + 1, game.getTicks()));
+            }
+        }
+    }
+
+    private static class Result {
+
+        private final Direction[] moves;
+        private final long p50Nanos;
+        private final long p99Nanos;
+
+        Result(Direction[] moves, long p50Nanos, long p99Nanos){
+            this.moves = moves;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+        }
+
+        String summary(){
+            return String.format("%d boards, p50 %.3f ms, p99 %.3f ms", moves.length, p50Nanos / 1e6, p99Nanos / 1e6);
+        }
+
+        void write(File file) throws IOException {
+            try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+                out.println("# Replay baseline, written by ReplayCheck --update");
+                out.println("p50 " + p50Nanos);
+                out.println("p99 " + p99Nanos);
+                for(int i = 0; i < moves.length; i++){
+                    out.println(i + " " + moves[i]);
+                }
+            }
+        }
+
+        static Result read(File file) throws IOException {
+            long p50 = 0;
+            long p99 = 0;
+            List<Direction> moves = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String line;
+                while((line = reader.readLine()) != null){
+                    if(line.trim().isEmpty() || line.startsWith("#")){
+                        continue;
+                    }
+                    String[] fields = line.trim().split(" ");
+                    if(fields[0].equals("p50")){
+                        p50 = Long.parseLong(fields[1]);
+                    } else if(fields[0].equals("p99")){
+                        p99 = Long.parseLong(fields[1]);
+                    } else {
+                        moves.add(Direction.valueOf(fields[1]));
+                    }
+                }
+            }
+            return new Result(moves.toArray(new Direction[moves.size()]), p50, p99);
+        }
+    }
+}
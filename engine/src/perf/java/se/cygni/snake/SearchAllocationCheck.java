@@ -0,0 +1,109 @@
+package se.cygni.snake;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fails (exit code 1) if the engine search, {@link SnakeEngine#getBestPossibleDirection},
+ * allocates in steady state. Only the search is measured: turning the server's update
+ * into a board, {@link BoardTracker#update} and handing the search to the search pool
+ * all allocate per tick and are left out.
+ *
+ * Replays a set of boards through one engine until the JIT has settled, then measures
+ * the bytes allocated by this thread over many more replays. The JIT counts as settled
+ * once it has not compiled anything for a number of rounds in a row, since compiler
+ * transitions can show up as a few stray allocations.
+ *
+ * Every board gets its distance table, as in a game. Without one the table class is
+ * never loaded during warm-up, and a late recompile of the engine loads it in the
+ * measured rounds, which shows up as the bytes of loading a class.
+ *
+ * Usage: SearchAllocationCheck [max bytes per tick]
+ */
+public class SearchAllocationCheck {
+
+    private static final int BOARD_COUNT = 50;
+    private static final int MIN_WARMUP_ROUNDS = 40;
+    private static final int MAX_WARMUP_ROUNDS = 1000;
+    private static final int QUIET_ROUNDS_NEEDED = 20;
+    private static final int MEASURED_ROUNDS = 20;
+    private static final int MAX_SEARCH_DEPTH = 30;
+
+    public static void main(String[] args) {
+        long maxBytesPerTick = args.length > 0 ? Long.parseLong(args[0]) : 0;
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if(!threads.isThreadAllocatedMemorySupported()){
+            System.out.println("Thread allocation counting is not supported by this JVM, skipping");
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        SyntheticBoards boards = new SyntheticBoards(46, 34, 1234);
+        List<SnakeState> states = new ArrayList<>();
+        for(int i = 0; i < BOARD_COUNT; i++){
+            boards.next(1 + i % 5);
+            states.add(boards.getState());
+        }
+        SnakeState[] replay = states.toArray(new SnakeState[states.size()]);
+        DistanceTable[] tables = new DistanceTable[replay.length];
+        for(int i = 0; i < replay.length; i++){
+            tables[i] = DistanceTable.build(replay[i]);
+        }
+
+        SnakeEngine engine = new SnakeEngine(MAX_SEARCH_DEPTH);
+        long deadline = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+        warmUp(engine, replay, tables, deadline);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for(int round = 0; round < MEASURED_ROUNDS; round++){
+            replayAll(engine, replay, tables, deadline);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        long ticks = (long) MEASURED_ROUNDS * replay.length;
+        double bytesPerTick = (double) allocated / ticks;
+        System.out.println(String.format("Engine search allocated %d bytes over %d ticks, %.1f bytes per tick (limit %d)",
+                allocated, ticks, bytesPerTick, maxBytesPerTick));
+
+        if(bytesPerTick > maxBytesPerTick){
+            System.out.println("The engine search allocates again");
+            System.exit(1);
+        }
+    }
+
+    private static void warmUp(SnakeEngine engine, SnakeState[] replay, DistanceTable[] tables, long deadline){
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean canMonitorJit = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long lastJitTime = canMonitorJit ? jit.getTotalCompilationTime() : 0;
+        int quietRounds = 0;
+
+        for(int round = 0; round < MAX_WARMUP_ROUNDS; round++){
+            replayAll(engine, replay, tables, deadline);
+            if(!canMonitorJit){
+                if(round + 1 >= MIN_WARMUP_ROUNDS){
+                    return;
+                }
+                continue;
+            }
+            long jitTime = jit.getTotalCompilationTime();
+            quietRounds = jitTime == lastJitTime ? quietRounds + 1 : 0;
+            lastJitTime = jitTime;
+            if(round + 1 >= MIN_WARMUP_ROUNDS && quietRounds >= QUIET_ROUNDS_NEEDED){
+                return;
+            }
+        }
+    }
+
+    private static void replayAll(SnakeEngine engine, SnakeState[] replay, DistanceTable[] tables, long deadline){
+        for(int i = 0; i < replay.length; i++){
+            engine.setDistanceTable(tables[i]);
+            engine.getBestPossibleDirection(replay[i], deadline);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package se.cygni.snake;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Tunes the engine weights by self-play with SPSA (simultaneous perturbation
+ * stochastic approximation). Every iteration perturbs all weights at once in a random
+ * +/- pattern and plays a batch of {@link LocalGame}s with two snakes on each side of
+ * the perturbation. The relative score difference between the sides is the gradient
+ * estimate along that pattern.
+ *
+ * Weights are tuned in a normalised space where every weight runs from 0 to 1 over its
+ * allowed range. Games run in parallel on all cores. Every few iterations the current
+ * weights are written to the output file, which is also where a run resumes from, and
+ * play against the defaults to show progress. The current weights are the running mean
+ * of the search, so they are saved as they are: keeping whichever scored best in one
+ * noisy batch of games would mostly keep a lucky batch.
+ *
+ * Usage: WeightTuner [iterations] [games per iteration] [output file]
+ */
+public class WeightTuner {
+
+    private static final int SNAKES_PER_GAME = 4;
+    private static final int MAP_WIDTH = 46;
+    private static final int MAP_HEIGHT = 34;
+    private static final int MAX_TICKS = 400;
+    private static final int MAX_SEARCH_DEPTH = 30;
+    //Generous, so that results depend on the weights and not on how busy the machine is
+    private static final long DECISION_BUDGET_MILLIS = 1000;
+    private static final int EVALUATE_EVERY = 10;
+
+    //SPSA gains, in normalised units, with the usual decay exponents
+    private static final double STEP_GAIN = 0.2;
+    private static final double PERTURBATION = 0.1;
+    private static final double STEP_DECAY = 0.602;
+    private static final double PERTURBATION_DECAY = 0.101;
+
+    private static final double[] MIN = new double[EngineWeights.NAMES.length];
+    private static final double[] MAX = new double[EngineWeights.NAMES.length];
+
+    static {
+        setRange(EngineWeights.FOOD_VALUE, 0, 60);
+        setRange(EngineWeights.KILL_VALUE, 0, 150);
+        setRange(EngineWeights.HEAD_FREE_WINDOW, 0, MAX_SEARCH_DEPTH);
+        setRange(EngineWeights.FOOD_WINDOW, 0, MAX_SEARCH_DEPTH);
+        setRange(EngineWeights.MIDDLE_WINDOW, 0, MAX_SEARCH_DEPTH);
+        setRange(EngineWeights.KILL_WINDOW, 0, MAX_SEARCH_DEPTH);
+        setRange(EngineWeights.COLLISION_SEARCH_THRESHOLD, 0, 1);
+        setRange(EngineWeights.HIGH_RISK_WEIGHT, 0, 10);
+        setRange(EngineWeights.TIGHT_REGION_FACTOR, 0, 4);
+        setRange(EngineWeights.REGION_SCREEN, 0, 1);
+        setRange(EngineWeights.DANGER_SCREEN, 0, 10);
+    }
+
+    private final ExecutorService executor;
+    private final Random random = new Random(20170401);
+    private long gamesPlayed;
+    private long startNanos;
+
+    private WeightTuner(int threads){
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int gamesPerIteration = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        File output = new File(args.length > 2 ? args[2] : "engine-weights.properties");
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        WeightTuner tuner = new WeightTuner(threads);
+        try {
+            tuner.tune(iterations, gamesPerIteration, output);
+        } finally {
+            tuner.executor.shutdownNow();
+        }
+    }
+
+    private void tune(int iterations, int gamesPerIteration, File output) throws Exception {
+        EngineWeights start = EngineWeights.loadOrDefault(output);
+        double[] theta = normalise(start.toVector());
+        double[] defaults = normalise(EngineWeights.defaults().toVector());
+        System.out.println(String.format("Starting from %s", start));
+
+        double stabiliser = Math.max(1, iterations / 10);
+        startNanos = System.nanoTime();
+        for(int k = 0; k < iterations; k++){
+            double stepGain = STEP_GAIN / Math.pow(k + 1 + stabiliser, STEP_DECAY);
+            double perturbation = PERTURBATION / Math.pow(k + 1, PERTURBATION_DECAY);
+
+            double[] delta = new double[theta.length];
+            double[] plus = new double[theta.length];
+            double[] minus = new double[theta.length];
+            for(int i = 0; i < theta.length; i++){
+                delta[i] = random.nextBoolean() ? 1 : -1;
+                plus[i] = clamp(theta[i] + perturbation * delta[i]);
+                minus[i] = clamp(theta[i] - perturbation * delta[i]);
+            }
+
+            double difference = evaluate(plus, minus, gamesPerIteration);
+            for(int i = 0; i < theta.length; i++){
+                theta[i] = clamp(theta[i] + stepGain * difference / (2 * perturbation * delta[i]));
+            }
+
+            if((k + 1) % EVALUATE_EVERY == 0 || k == iterations - 1){
+                denormalise(theta).save(output, String.format("Iteration %d of %d", k + 1, iterations));
+                double advantage = evaluate(theta, defaults, gamesPerIteration);
+                System.out.println(String.format("Iteration %d: %s, advantage over defaults %.4f, %.2f games/s, saved",
+                        k + 1, denormalise(theta), advantage, gamesPerSecond()));
+            }
+        }
+        System.out.println(String.format("Done, %d games at %.2f games/s", gamesPlayed, gamesPerSecond()));
+    }
+
+    /**
+     * Plays the given number of games with half the snakes on each weight vector and
+     * returns the relative score difference, from -1 (all points to b) to 1 (all to a).
+     */
+    private double evaluate(double[] a, double[] b, int games) throws InterruptedException, ExecutionException {
+        EngineWeights weightsA = denormalise(a);
+        EngineWeights weightsB = denormalise(b);
+
+        List<Future<int[]>> results = new ArrayList<>();
+        for(int g = 0; g < games; g++){
+            long seed = random.nextLong();
+            results.add(executor.submit(() -> playGame(weightsA, weightsB, seed)));
+        }
+
+        long scoreA = 0;
+        long scoreB = 0;
+        for(Future<int[]> result : results){
+            int[] scores = result.get();
+            for(int i = 0; i < scores.length; i++){
+                if(i % 2 == 0){
+                    scoreA += scores[i];
+                } else {
+                    scoreB += scores[i];
+                }
+            }
+        }
+        gamesPlayed += games;
+        return scoreA + scoreB == 0 ? 0 : (double) (scoreA - scoreB) / (scoreA + scoreB);
+    }
+
+    private static int[] playGame(EngineWeights a, EngineWeights b, long seed){
+        SnakeEngine[] engines = new SnakeEngine[SNAKES_PER_GAME];
+        for(int i = 0; i < engines.length; i++){
+            engines[i] = new SnakeEngine(MAX_SEARCH_DEPTH, i % 2 == 0 ? a : b);
+        }
+        return new LocalGame(MAP_WIDTH, MAP_HEIGHT, MAX_TICKS, DECISION_BUDGET_MILLIS, seed, engines).play();
+    }
+
+    private double gamesPerSecond(){
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? gamesPlayed / seconds : 0;
+    }
+
+    private static void setRange(int index, double min, double max){
+        MIN[index] = min;
+        MAX[index] = max;
+    }
+
+    private static double[] normalise(double[] values){
+        double[] normalised = new double[values.length];
+        for(int i = 0; i < values.length; i++){
+            normalised[i] = clamp((values[i] - MIN[i]) / (MAX[i] - MIN[i]));
+        }
+        return normalised;
+    }
+
+    private static EngineWeights denormalise(double[] normalised){
+        double[] values = new double[normalised.length];
+        for(int i = 0; i < normalised.length; i++){
+            values[i] = MIN[i] + normalised[i] * (MAX[i] - MIN[i]);
+        }
+        return new EngineWeights(values);
+    }
+
+    private static double clamp(double value){
+        return Math.max(0, Math.min(1, value));
+    }
+}
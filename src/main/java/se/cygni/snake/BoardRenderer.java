@@ -0,0 +1,216 @@
+package se.cygni.snake;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Draws the board in the terminal with ANSI escapes, on a thread of its own so that
+ * printing never holds up a decision.
+ *
+ * The tick thread copies the board into a snapshot of one byte per cell and publishes
+ * it in a single slot, replacing a snapshot that has not been drawn yet. The render
+ * thread keeps what is on the screen and only repaints the cells that changed, moving
+ * the cursor to each of them and only switching colours when they change. Replaced
+ * and drawn snapshots go back to the tick thread for reuse, so at most a few exist.
+ *
+ * A renderer from {@link #onTerminal} has the terminal to itself. It writes to the
+ * standard output file descriptor through a stream of its own, and {@code System.out},
+ * which the console log appender writes to, goes to a log file instead. Frames and log
+ * lines then neither interleave nor wait on each other's lock.
+ */
+public class BoardRenderer {
+
+    private static final byte EMPTY = 0;
+    private static final byte OBSTACLE = 1;
+    private static final byte FOOD = 2;
+    private static final byte SELF = 3;
+    private static final byte SELF_HEAD = 4;
+    //Foe i has body FOE + 2 * i and head FOE + 2 * i + 1
+    private static final byte FOE = 5;
+    private static final byte NOT_DRAWN = -1;
+
+    private static final String ESC = "\u001b[";
+    private static final String[] FOE_COLOURS = {"0;44", "0;45", "0;43", "0;46", "0;41", "0;47"};
+    private static final String[] FOE_HEAD_COLOURS = {"0;30;44", "0;30;45", "0;30;43", "0;30;46", "0;30;41", "0;30;47"};
+
+    private static final class Snapshot {
+        private final int width;
+        private final int height;
+        private final byte[] cells;
+        private long gameTick;
+
+        private Snapshot(int width, int height){
+            this.width = width;
+            this.height = height;
+            this.cells = new byte[width * height];
+        }
+    }
+
+    //The terminal, shared by all renderers once System.out is sent to the log file
+    private static PrintStream terminal;
+
+    private final PrintStream out;
+    private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+    private final AtomicReference<Snapshot> drawn = new AtomicReference<>();
+    private final Thread thread;
+
+    //Tick thread only
+    private Snapshot spare;
+    private long droppedFrames;
+
+    //Render thread only
+    private byte[] screen = new byte[0];
+    private int screenWidth;
+    private final StringBuilder frame = new StringBuilder();
+    private String colour;
+
+    public BoardRenderer(PrintStream out){
+        this.out = out;
+        this.thread = new Thread(this::run, "Board renderer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * A renderer that draws on the terminal, sending {@code System.out} to the given log
+     * file from then on.
+     */
+    public static synchronized BoardRenderer onTerminal(File logFile) throws IOException {
+        if(terminal == null){
+            PrintStream log = new PrintStream(new FileOutputStream(logFile, true), true);
+            terminal = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+            System.setOut(log);
+        }
+        return new BoardRenderer(terminal);
+    }
+
+    /**
+     * Hands a copy of the board to the render thread. Never blocks, a frame that has not
+     * been drawn yet is dropped.
+     */
+    public void publish(SnakeState state, long gameTick){
+        Snapshot snapshot = spare != null ? spare : drawn.getAndSet(null);
+        if(snapshot == null || snapshot.width != state.getMapWidth() || snapshot.height != state.getMapHeight()){
+            snapshot = new Snapshot(state.getMapWidth(), state.getMapHeight());
+        }
+        fill(snapshot, state);
+        snapshot.gameTick = gameTick;
+
+        spare = pending.getAndSet(snapshot);
+        if(spare != null){
+            droppedFrames++;
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Frames replaced by a newer one before the render thread got to them.
+     */
+    public long getDroppedFrames(){
+        return droppedFrames;
+    }
+
+    private static void fill(Snapshot snapshot, SnakeState state){
+        byte[] cells = snapshot.cells;
+        for(int cell = 0; cell < cells.length; cell++){
+            cells[cell] = state.isObstacle(cell) ? OBSTACLE : state.isFood(cell) ? FOOD : EMPTY;
+        }
+        mark(cells, state.getSelf(), SELF);
+        for(int i = 0; i < state.getFoeCount(); i++){
+            mark(cells, state.getFoe(i), (byte) (FOE + 2 * (i % FOE_COLOURS.length)));
+        }
+    }
+
+    private static void mark(byte[] cells, Snake snake, byte body){
+        for(int i = snake.getLength() - 1; i >= 0; i--){
+            cells[snake.getCell(i)] = i == 0 ? (byte) (body + 1) : body;
+        }
+    }
+
+    private void run(){
+        while(true){
+            Snapshot snapshot = pending.getAndSet(null);
+            if(snapshot == null){
+                LockSupport.park(this);
+                continue;
+            }
+            draw(snapshot);
+            drawn.set(snapshot);
+        }
+    }
+
+    private void draw(Snapshot snapshot){
+        frame.setLength(0);
+        colour = null;
+        if(screen.length != snapshot.cells.length || screenWidth != snapshot.width){
+            screen = new byte[snapshot.cells.length];
+            Arrays.fill(screen, NOT_DRAWN);
+            screenWidth = snapshot.width;
+            frame.append(ESC).append("2J");
+        }
+
+        int cursor = -1;
+        for(int cell = 0; cell < screen.length; cell++){
+            byte value = snapshot.cells[cell];
+            if(value == screen[cell]){
+                continue;
+            }
+            screen[cell] = value;
+            //Cells are two characters wide, the cursor is already in place after the previous cell on the row
+            if(cell != cursor){
+                frame.append(ESC).append(cell / snapshot.width + 1).append(';')
+                        .append(2 * (cell % snapshot.width) + 1).append('H');
+            }
+            appendCell(value);
+            cursor = cell % snapshot.width == snapshot.width - 1 ? -1 : cell + 1;
+        }
+
+        frame.append(ESC).append("0m").append(ESC).append(snapshot.height + 1).append(";1H")
+                .append("Tick ").append(snapshot.gameTick).append(ESC).append('K');
+        out.print(frame);
+        out.flush();
+    }
+
+    private void appendCell(byte value){
+        switch(value){
+            case EMPTY:
+                appendColoured("0", "  ");
+                break;
+            case OBSTACLE:
+                appendColoured("0;100", "  ");
+                break;
+            case FOOD:
+                appendColoured("0;31", "()");
+                break;
+            case SELF:
+                appendColoured("0;42", "  ");
+                break;
+            case SELF_HEAD:
+                appendColoured("0;30;42", "[]");
+                break;
+            default:
+                int foe = (value - FOE) / 2;
+                if((value - FOE) % 2 == 1){
+                    appendColoured(FOE_HEAD_COLOURS[foe], "[]");
+                } else {
+                    appendColoured(FOE_COLOURS[foe], "  ");
+                }
+        }
+    }
+
+    private void appendColoured(String sgr, String glyph){
+        if(!sgr.equals(colour)){
+            frame.append(ESC).append(sgr).append('m');
+            colour = sgr;
+        }
+        frame.append(glyph);
+    }
+}
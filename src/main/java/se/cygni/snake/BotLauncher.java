@@ -0,0 +1,68 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hosts several independent players in one JVM. Every player gets its own config,
+ * engine and session, while their searches share a single {@link SearchPool}.
+ *
+ * Usage: BotLauncher [number of bots] [max search threads]
+ */
+public class BotLauncher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BotLauncher.class);
+
+    public static void main(String[] args) {
+        int botCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        SearchPool searchPool = new SearchPool(maxThreads);
+        PlayerConfig baseConfig = PlayerConfig.defaults();
+        LOGGER.info("Hosting {} bots on {} search threads", botCount, searchPool.getParallelism());
+
+        List<SimpleSnakePlayer> players = new ArrayList<>();
+        for(int i = 0; i < botCount; i++){
+            PlayerConfig config = botCount == 1 ? baseConfig :
+                    baseConfig.withSnakeName(baseConfig.getSnakeName() + " " + (i + 1));
+            SimpleSnakePlayer player = new SimpleSnakePlayer(config, searchPool);
+            try {
+                ListenableFuture<WebSocketSession> connect = player.connect();
+                connect.get();
+                players.add(player);
+            } catch (Exception e) {
+                LOGGER.error("Failed to connect " + config.getSnakeName() + " to server", e);
+            }
+        }
+
+        if(players.isEmpty()){
+            System.exit(1);
+        }
+
+        Runnable task = () -> {
+            boolean anyPlaying;
+            do {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                anyPlaying = false;
+                for(SimpleSnakePlayer player : players){
+                    anyPlaying |= player.isPlaying();
+                }
+            } while (anyPlaying);
+
+            searchPool.shutdown();
+            LOGGER.info("All bots done, shutting down");
+        };
+
+        Thread thread = new Thread(task);
+        thread.start();
+    }
+}
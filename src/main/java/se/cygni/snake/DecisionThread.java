@@ -0,0 +1,132 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the decisions of one player on a thread of its own, so the callback that
+ * receives a tick only hands it over and returns.
+ *
+ * The hand-over is a single slot: a tick that has not been picked up yet is replaced
+ * by a newer one, since a move for an old tick is worth nothing once the next one is
+ * there. A tick that arrives while a decision is running also cancels that decision
+ * through the decider, and the decider can check {@link #isSuperseded()} before it
+ * answers, so only the newest tick gets a move.
+ */
+public class DecisionThread<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DecisionThread.class);
+
+    public interface Decider<T> {
+        /**
+         * Decides on the tick and answers it. Returns false if the tick was dropped
+         * without an answer because a newer one arrived.
+         */
+        boolean decide(T tick, long arrivalNanos);
+
+        /**
+         * Called from the thread posting a newer tick, should make a running decision
+         * return soon. May also come while no decision is running.
+         */
+        void cancel();
+    }
+
+    private static final class Pending<T> {
+        private final T tick;
+        private final long arrivalNanos;
+
+        private Pending(T tick, long arrivalNanos){
+            this.tick = tick;
+            this.arrivalNanos = arrivalNanos;
+        }
+    }
+
+    private final Decider<T> decider;
+    private final AtomicReference<Pending<T>> slot = new AtomicReference<>();
+    private final Thread thread;
+
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder decided = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private volatile long maxQueueNanos;
+
+    public DecisionThread(String name, Decider<T> decider){
+        this.decider = decider;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hands a tick to the decision thread, replacing one that is still waiting and
+     * cancelling the decision in progress. Never blocks.
+     */
+    public void post(T tick){
+        Pending<T> replaced = slot.getAndSet(new Pending<>(tick, System.nanoTime()));
+        if(replaced != null){
+            dropped.increment();
+        }
+        decider.cancel();
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Whether a newer tick is waiting, in which case the current one should not be answered.
+     */
+    public boolean isSuperseded(){
+        return slot.get() != null;
+    }
+
+    private void run(){
+        while(true){
+            Pending<T> next = slot.getAndSet(null);
+            if(next == null){
+                LockSupport.park(this);
+                continue;
+            }
+
+            long queued = System.nanoTime() - next.arrivalNanos;
+            taken.increment();
+            queueNanos.add(queued);
+            if(queued > maxQueueNanos){
+                maxQueueNanos = queued;
+            }
+
+            try {
+                if(decider.decide(next.tick, next.arrivalNanos)){
+                    decided.increment();
+                } else {
+                    dropped.increment();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Decision failed", e);
+            }
+        }
+    }
+
+    public long getDecidedTicks(){
+        return decided.sum();
+    }
+
+    public long getDroppedTicks(){
+        return dropped.sum();
+    }
+
+    public long getMaxQueueNanos(){
+        return maxQueueNanos;
+    }
+
+    public String getStats(){
+        long count = taken.sum();
+        return String.format("%d ticks answered, %d dropped, queueing delay %.3f ms mean, %.3f ms max",
+                decided.sum(), dropped.sum(),
+                count == 0 ? 0 : queueNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1),
+                maxQueueNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,183 @@
+package se.cygni.snake;
+
+import se.cygni.snake.api.model.GameMode;
+
+import java.io.File;
+
+/**
+ * Everything that used to be hard-coded in {@link SimpleSnakePlayer}. One instance
+ * per hosted bot, so that several bots with different settings can share a JVM.
+ */
+public class PlayerConfig {
+
+    private static final String DEFAULT_SERVER_NAME = "snake.cygni.se";
+    private static final int DEFAULT_SERVER_PORT = 80;
+    private static final GameMode DEFAULT_GAME_MODE = GameMode.TOURNAMENT;
+    private static final String DEFAULT_SNAKE_NAME = "Solid Snakey";
+    private static final int DEFAULT_MAX_SEARCH_DEPTH = 30;
+    private static final long DEFAULT_TICK_BUDGET_MILLIS = 200;
+    private static final long DEFAULT_WARMUP_BUDGET_MILLIS = 3000;
+    private static final int DEFAULT_MAP_WIDTH = 46;
+    private static final int DEFAULT_MAP_HEIGHT = 34;
+    private static final String DEFAULT_WEIGHTS_FILE = "engine-weights.properties";
+    private static final int DEFAULT_EVALUATION_CACHE_MB = 64;
+    private static final String DEFAULT_LOG_FILE = "snake-bot.log";
+
+    private final String snakeName;
+    private final String serverName;
+    private final int serverPort;
+    private final GameMode gameMode;
+    private final boolean autoStartGame;
+    private final boolean ansiPrinterActive;
+    private final int maxSearchDepth;
+    private final long tickBudgetMillis;
+    private final long warmupBudgetMillis;
+    private final int mapWidth;
+    private final int mapHeight;
+    private final File weightsFile;
+    private final File boardRecordFile;
+    private final File evaluationCacheFile;
+    private final int evaluationCacheMb;
+    private final File logFile;
+
+    public PlayerConfig(String snakeName, String serverName, int serverPort, GameMode gameMode,
+                        boolean autoStartGame, boolean ansiPrinterActive,
+                        int maxSearchDepth, long tickBudgetMillis,
+                        long warmupBudgetMillis, int mapWidth, int mapHeight, File weightsFile,
+                        File boardRecordFile, File evaluationCacheFile, int evaluationCacheMb, File logFile){
+        this.snakeName = snakeName;
+        this.serverName = serverName;
+        this.serverPort = serverPort;
+        this.gameMode = gameMode;
+        this.autoStartGame = autoStartGame;
+        this.ansiPrinterActive = ansiPrinterActive;
+        this.maxSearchDepth = maxSearchDepth;
+        this.tickBudgetMillis = tickBudgetMillis;
+        this.warmupBudgetMillis = warmupBudgetMillis;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.weightsFile = weightsFile;
+        this.boardRecordFile = boardRecordFile;
+        this.evaluationCacheFile = evaluationCacheFile;
+        this.evaluationCacheMb = evaluationCacheMb;
+        this.logFile = logFile;
+    }
+
+    public static PlayerConfig defaults(){
+        return new PlayerConfig(DEFAULT_SNAKE_NAME, DEFAULT_SERVER_NAME, DEFAULT_SERVER_PORT, DEFAULT_GAME_MODE,
+                false, Boolean.getBoolean("snake.ansiPrinter"), DEFAULT_MAX_SEARCH_DEPTH, DEFAULT_TICK_BUDGET_MILLIS,
+                DEFAULT_WARMUP_BUDGET_MILLIS, DEFAULT_MAP_WIDTH, DEFAULT_MAP_HEIGHT,
+                new File(System.getProperty("snake.weights", DEFAULT_WEIGHTS_FILE)),
+                fileProperty("snake.recordBoards"), fileProperty("snake.evaluationCache"),
+                Integer.getInteger("snake.evaluationCacheMb", DEFAULT_EVALUATION_CACHE_MB),
+                new File(System.getProperty("snake.logFile", DEFAULT_LOG_FILE)));
+    }
+
+    private static File fileProperty(String name){
+        String path = System.getProperty(name);
+        return path != null ? new File(path) : null;
+    }
+
+    /**
+     * The same config for a bot with another name. Boards are then recorded to a file of
+     * its own, so that bots in one JVM don't write into each other's records.
+     */
+    public PlayerConfig withSnakeName(String name){
+        return new PlayerConfig(name, serverName, serverPort, gameMode, autoStartGame, ansiPrinterActive,
+                maxSearchDepth, tickBudgetMillis, warmupBudgetMillis, mapWidth, mapHeight, weightsFile,
+                recordFileFor(name), evaluationCacheFile, evaluationCacheMb, logFile);
+    }
+
+    //boards.txt becomes boards-Solid-Snakey-2.txt
+    private File recordFileFor(String name){
+        if(boardRecordFile == null){
+            return null;
+        }
+        String fileName = boardRecordFile.getName();
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        return new File(boardRecordFile.getParentFile(), base + "-" + name.replaceAll("[^A-Za-z0-9]+", "-") + extension);
+    }
+
+    public String getSnakeName() {
+        return snakeName;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    public GameMode getGameMode() {
+        return gameMode;
+    }
+
+    public boolean isAutoStartGame() {
+        return autoStartGame;
+    }
+
+    public boolean isAnsiPrinterActive() {
+        return ansiPrinterActive;
+    }
+
+    public int getMaxSearchDepth() {
+        return maxSearchDepth;
+    }
+
+    public long getTickBudgetMillis() {
+        return tickBudgetMillis;
+    }
+
+    /**
+     * Time spent warming up the JIT before the first game, zero to skip warm-up.
+     */
+    public long getWarmupBudgetMillis() {
+        return warmupBudgetMillis;
+    }
+
+    public int getMapWidth() {
+        return mapWidth;
+    }
+
+    public int getMapHeight() {
+        return mapHeight;
+    }
+
+    /**
+     * Engine weights loaded at startup, as written by the weight tuner. The defaults
+     * are used if the file does not exist.
+     */
+    public File getWeightsFile() {
+        return weightsFile;
+    }
+
+    /**
+     * File every board is appended to before the engine decides, for the replay corpus.
+     * Null when boards are not recorded. Every hosted bot has its own.
+     */
+    public File getBoardRecordFile() {
+        return boardRecordFile;
+    }
+
+    /**
+     * Memory mapped file for the persistent evaluation cache, null to run without one.
+     */
+    public File getEvaluationCacheFile() {
+        return evaluationCacheFile;
+    }
+
+    public int getEvaluationCacheMb() {
+        return evaluationCacheMb;
+    }
+
+    /**
+     * File the console log goes to while the board is drawn in the terminal.
+     */
+    public File getLogFile() {
+        return logFile;
+    }
+}
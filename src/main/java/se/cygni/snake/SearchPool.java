@@ -0,0 +1,80 @@
+package se.cygni.snake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A size-capped work-stealing pool that all bots in the JVM run their searches on.
+ * Each search gets a deadline measured from when its tick arrived, so a bot that has
+ * to wait for a worker gets less search time rather than answering late.
+ */
+public class SearchPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchPool.class);
+
+    // Extra time we wait past the deadline before giving up on a search that did not notice it
+    private static final long DEADLINE_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static SearchPool sharedPool;
+
+    private final ForkJoinPool pool;
+
+    public SearchPool(int maxThreads){
+        int parallelism = Math.max(1, Math.min(maxThreads, Runtime.getRuntime().availableProcessors()));
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static synchronized SearchPool shared(){
+        if(sharedPool == null){
+            sharedPool = new SearchPool(Runtime.getRuntime().availableProcessors());
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Runs the search on the pool and waits for it until the deadline has passed.
+     * Returns {@code fallback} if the search fails or overruns its deadline.
+     *
+     * A search that overruns is stopped with {@code cancel} and waited for, and one that
+     * has not started yet never will, so the caller is free to touch whatever the search
+     * uses once this returns.
+     */
+    public <T> T search(Callable<T> search, Runnable cancel, long deadlineNanos, T fallback){
+        //Whoever sets this first decides: the worker runs the search, or we give up on it before it starts
+        AtomicBoolean claimed = new AtomicBoolean();
+        ForkJoinTask<T> task = pool.submit(() -> claimed.compareAndSet(false, true) ? search.call() : fallback);
+        long waitNanos = Math.max(0, deadlineNanos - System.nanoTime()) + DEADLINE_GRACE_NANOS;
+        try {
+            return task.get(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            stop(task, claimed, cancel);
+            LOGGER.warn("Search overran its deadline, using fallback move");
+        } catch (InterruptedException e) {
+            stop(task, claimed, cancel);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Search failed", e.getCause());
+        }
+        return fallback;
+    }
+
+    //ForkJoinTask.cancel does not interrupt a running task, so the search is told to stop and then joined
+    private static void stop(ForkJoinTask<?> task, AtomicBoolean claimed, Runnable cancel){
+        if(claimed.compareAndSet(false, true)){
+            return;
+        }
+        cancel.run();
+        task.quietlyJoin();
+    }
+
+    public int getParallelism(){
+        return pool.getParallelism();
+    }
+
+    public void shutdown(){
+        pool.shutdown();
+    }
+}
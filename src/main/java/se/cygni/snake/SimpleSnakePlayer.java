@@ -10,43 +10,110 @@ import se.cygni.snake.api.model.*;
 import se.cygni.snake.api.model.Map;
 import se.cygni.snake.api.response.PlayerRegistered;
 import se.cygni.snake.api.util.GameSettingsUtils;
-import se.cygni.snake.client.AnsiPrinter;
 import se.cygni.snake.client.BaseSnakeClient;
 import se.cygni.snake.client.MapCoordinate;
 import se.cygni.snake.client.MapUtil;
 
-import java.util.*;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Connects the engine to the server: decodes each map update into a {@link Board} for
+ * the engine and sends back the move it picks.
+ */
 public class SimpleSnakePlayer extends BaseSnakeClient {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleSnakePlayer.class);
 
-    // Set to false if you want to start the game from a GUI
-    private static final boolean AUTO_START_GAME = false;
+    //The server's direction for each engine direction, by ordinal
+    private static final SnakeDirection[] SERVER_DIRECTIONS = new SnakeDirection[Direction.values().length];
 
-    // Personalise your game ...
-    private static final String SERVER_NAME = "snake.cygni.se";
-    private static  final int SERVER_PORT = 80;
+    static {
+        for(Direction dir : Direction.values()){
+            SERVER_DIRECTIONS[dir.ordinal()] = SnakeDirection.valueOf(dir.name());
+        }
+    }
 
-    private static final GameMode GAME_MODE = GameMode.TOURNAMENT;
-    private static final String SNAKE_NAME = "Solid Snakey";
+    //A map update, with the decision event begun when it arrived if one is being recorded
+    private static final class Tick {
+        private final MapUpdateEvent update;
+        private final Object decisionEvent;
 
-    // Set to false if you don't want the game world printed every game tick.
-    private static final boolean ANSI_PRINTER_ACTIVE = false;
-    private AnsiPrinter ansiPrinter = new AnsiPrinter(ANSI_PRINTER_ACTIVE, true);
+        private Tick(MapUpdateEvent update, Object decisionEvent){
+            this.update = update;
+            this.decisionEvent = decisionEvent;
+        }
+    }
 
+    // Personalise your game in PlayerConfig.defaults() ...
+    private final PlayerConfig config;
+    private final SearchPool searchPool;
+    private final EngineWeights weights;
+    private final SnakeEngine engine;
+    private final BoardTracker tracker;
+    //Null unless the board is drawn in the terminal
+    private final BoardRenderer renderer;
+    private final EvaluationCache evaluationCache;
+    private final DecisionThread<Tick> decisions;
+    private BoardRecorder boardRecorder;
+
+
+    public SimpleSnakePlayer(){
+        this(PlayerConfig.defaults(), SearchPool.shared());
+    }
 
-    //Final variables
-    private SnakeState currentState;
-    private static final int MAX_SEARCH_DEPTH = 30; //Play with this value for search depth
+    public SimpleSnakePlayer(PlayerConfig config, SearchPool searchPool){
+        this.config = config;
+        this.searchPool = searchPool;
+        this.evaluationCache = openEvaluationCache(config);
+        this.weights = EngineWeights.loadOrDefault(config.getWeightsFile());
+        this.engine = new SnakeEngine(config.getMaxSearchDepth(), weights, evaluationCache);
+        this.tracker = new BoardTracker(engine);
+        this.renderer = config.isAnsiPrinterActive() ? openRenderer(config) : null;
+
+        if(config.getBoardRecordFile() != null){
+            try {
+                this.boardRecorder = new BoardRecorder(config.getBoardRecordFile());
+            } catch (IOException e) {
+                LOGGER.warn("Could not open {} for recording boards", config.getBoardRecordFile(), e);
+            }
+        }
 
+        this.decisions = new DecisionThread<>(config.getSnakeName() + " decisions",
+                new DecisionThread.Decider<Tick>() {
+                    @Override
+                    public boolean decide(Tick tick, long arrivalNanos) {
+                        return decideMove(tick.update, tick.decisionEvent, arrivalNanos);
+                    }
 
-    private SnakeInfo[] snakes;
-    private MapUtil mapUtil;
-    private Map map;
-    private MapUpdateEvent mue;
-    private HashSet<MapCoordinate> foodSet;
-    private int finalOpenSpaces;
+                    @Override
+                    public void cancel() {
+                        engine.cancel();
+                    }
+                });
+    }
+
+
+    private static BoardRenderer openRenderer(PlayerConfig config){
+        try {
+            return BoardRenderer.onTerminal(config.getLogFile());
+        } catch (IOException e) {
+            LOGGER.warn("Could not open the log file {}, not drawing the board", config.getLogFile(), e);
+            return null;
+        }
+    }
+
+    private static EvaluationCache openEvaluationCache(PlayerConfig config){
+        if(config.getEvaluationCacheFile() == null){
+            return null;
+        }
+        try {
+            return EvaluationCache.open(config.getEvaluationCacheFile(), config.getEvaluationCacheMb());
+        } catch (IOException e) {
+            LOGGER.warn("Could not open the evaluation cache {}, running without it", config.getEvaluationCacheFile(), e);
+            return null;
+        }
+    }
 
 
     public static void main(String[] args) {
@@ -84,391 +151,97 @@ public class SimpleSnakePlayer extends BaseSnakeClient {
         thread.start();
     }
 
-     private void initiateState(){
-         Snake self = null;
-         ArrayList<Snake> foes = new ArrayList<>();
-         foodSet = new HashSet<>();
-
-         for(SnakeInfo snake : snakes){
-             MapCoordinate[] spread = mapUtil.getSnakeSpread(snake.getId());
-             if(snake.getId().equals(getPlayerId())){
-                 self = new Snake(getPlayerId(), spread, 0);
-                 self.setDir(SnakeDirection.DOWN);
-             } else {
-                 Snake foe = new Snake(snake.getId(), spread, 0);
-                 foe.setDir(SnakeDirection.DOWN);
-                 foes.add(foe);
-             }
-         }
-
-         currentState = new SnakeState(map.getHeight(), map.getWidth(), self, foes,
-                 mapUtil.listCoordinatesContainingObstacle());
-     }
-
-     private void updateState(){
-         MapCoordinate newHead = mapUtil.getSnakeSpread(getPlayerId())[0];
-         currentState.updateSnakeState(newHead, getFoeSnakes());
-     }
-
-     private HashSet<Snake> getFoeSnakes(){
-         HashSet<Snake> foes = new HashSet<>();
-         for(SnakeInfo snake : snakes){
-             if(!snake.getId().equals(getPlayerId()) && snake.isAlive()){
-                 String fId = snake.getId();
-                 foes.add(new Snake(fId, mapUtil.getSnakeSpread(fId), mue.getGameTick()));
-             }
-         }
-         return foes;
-     }
-
-     private void upDateInstance(MapUpdateEvent update){
-         mapUtil = new MapUtil(update.getMap(), getPlayerId());
-         map = update.getMap();
-         mue = update;
-         snakes = map.getSnakeInfos();
-         foodSet = new HashSet<>();
-
-         for(MapCoordinate food : mapUtil.listCoordinatesContainingFood()){
-             foodSet.add(food);
-         }
-     }
-
-    @Override
-    public void onMapUpdate(MapUpdateEvent mapUpdateEvent) {
-
-        System.out.println("=============== CURRENTLY AT STATE NUMBER " + mapUpdateEvent.getGameTick() + "===============");
-
-        long millis = System.currentTimeMillis();
-
-        upDateInstance(mapUpdateEvent);
-
-
-        //Needed for multiple games with same instance
-        if (mapUpdateEvent.getGameTick() > 0) {
-            updateState();
-        } else {
-            initiateState();
-        }
-
-        System.out.println("Current position: " + currentState.getSelf().getHead());
-
-        SnakeDirection bestDir = getBestPossibleDirection();
-
-        if(foodSet.contains(getTileInFront(currentState.getSelf(), bestDir))){
-            System.out.println("Found food!");
-            currentState.getSelf().setHasEaten(true);
-        }
-
-
-        registerMove(mapUpdateEvent.getGameTick(), bestDir);
-        System.out.println("Elapsed time: " + (System.currentTimeMillis() - millis));
-    }
-
-
-    private SnakeDirection getBestPossibleDirection(){
-
-        EnumMap<SnakeDirection, Tuple<Integer, Integer>> results = new EnumMap<>(SnakeDirection.class);
-        EnumMap<SnakeDirection, Integer> collisionRisk = new EnumMap<>(SnakeDirection.class);
-        BonusHandler bh = new BonusHandler();
-
-        SnakeDirection bestDir = SnakeDirection.DOWN;
-        int maxValue = Integer.MIN_VALUE;
-        int maxTiles = 0;
-        int mostFinalOpenSpaces = 0;
-
-        for(SnakeDirection dir : SnakeDirection.values()) {
-            finalOpenSpaces = 0;
-            if (currentState.canIMoveInDirection(dir)) {
-                System.out.println("====" + dir + "====");
-                BonusTracker bt = bh.addBonusTracker(dir);
-                SnakeState futureState = currentState.createFutureState(dir);
-
-                int searchVal = getLongestPossiblePath(futureState, bt, MAX_SEARCH_DEPTH);
-                int openTiles = currentState.getOpenSpacesinDir(dir);
-
-                collisionRisk.put(dir, getCollisionRisk(currentState, dir));
-
-                if(searchVal > maxValue){
-                    maxValue = searchVal;
-                    bestDir = dir;
-                    maxTiles = openTiles;
-                    mostFinalOpenSpaces = finalOpenSpaces;
-
-                } else if (finalOpenSpaces > mostFinalOpenSpaces && openTiles > maxValue){
-                    bestDir = dir;
-                    maxTiles = openTiles;
-                    mostFinalOpenSpaces = finalOpenSpaces;
-                } else if (openTiles > maxTiles){
-                    //System.out.println("Best direction set to " + dir);
-                    bestDir = dir;
-                    maxTiles = openTiles;
-                    mostFinalOpenSpaces = finalOpenSpaces;
-                }
-
-                System.out.println("Found a value of " + searchVal + " in direction " + dir + " with " + openTiles + " tiles");
-                results.put(dir, new Tuple<>(searchVal, openTiles));
-
-            }
-
-        }
-
-        int maxBonus = bh.getBonus(bestDir);
-        for(SnakeDirection dir : results.keySet()){
-            Tuple<Integer, Integer> resTuple = results.get(dir);
-            if(dir != bestDir && resTuple.first >= maxValue && resTuple.second >= maxTiles && bh.getBonus(dir) > maxBonus){
-                bestDir = dir;
-                maxBonus = bh.getBonus(dir);
-                System.out.println("Changed to " + dir + " due to bonuses");
-            }
-        }
-
-        int leastRisk = collisionRisk.get(bestDir);
-        if(leastRisk > 1){
-            for(SnakeDirection dir : collisionRisk.keySet()){
-                int colRisk = collisionRisk.get(dir);
-                if(colRisk < leastRisk && (results.get(dir).first > maxValue*0.6)){
-                    System.out.println("Changed to " + dir + " due to collision risk");
-                    leastRisk = collisionRisk.get(dir);
-                    bestDir = dir;
-
-                }
+    private Board toBoard(MapUpdateEvent update){
+        Map map = update.getMap();
+        MapUtil mapUtil = new MapUtil(map, getPlayerId());
+        Board board = new Board(update.getGameTick(), map.getWidth(), map.getHeight(),
+                toCoordinates(mapUtil.listCoordinatesContainingObstacle()),
+                toCoordinates(mapUtil.listCoordinatesContainingFood()),
+                getPlayerId(), toCoordinates(mapUtil.getSnakeSpread(getPlayerId())));
+        for(SnakeInfo snake : map.getSnakeInfos()){
+            if(!snake.getId().equals(getPlayerId()) && snake.isAlive()){
+                board.addFoe(snake.getId(), toCoordinates(mapUtil.getSnakeSpread(snake.getId())));
             }
         }
-
-        return bestDir;
+        return board;
     }
 
-    private boolean isSelfMovingMid(SnakeState state){
-        MapCoordinate selfHead = state.getSelf().getHead();
-        SnakeDirection selfDir = state.getSelf().getDir();
-        int width = state.getMapWidth();
-        int height = state.getMapHeight();
-
-        if(selfHead.x < width / 2) {
-            if(selfHead.y < height / 2){ //First and third quadrant
-                return selfDir == SnakeDirection.RIGHT ||selfDir == SnakeDirection.DOWN;
-            } else
-                return selfDir == SnakeDirection.RIGHT || selfDir == SnakeDirection.UP;
-        } else {
-            if(selfHead.y < height / 2){
-                return selfDir == SnakeDirection.LEFT || selfDir == SnakeDirection.DOWN;
-            } else {
-                return selfDir == SnakeDirection.LEFT || selfDir == SnakeDirection.UP;
-            }
+    private static Coordinate[] toCoordinates(MapCoordinate[] mapCoordinates){
+        Coordinate[] coordinates = new Coordinate[mapCoordinates.length];
+        for(int i = 0; i < mapCoordinates.length; i++){
+            coordinates[i] = new Coordinate(mapCoordinates[i].x, mapCoordinates[i].y);
         }
+        return coordinates;
     }
 
-
-    private int finalizePath(SnakeState state){
-        if(state.canIMoveInDirection(state.getSelf().getDir())){
-            finalOpenSpaces = state.getOpenSpacesinDir(state.getSelf().getDir());
-            return 0;
-        } else {
-            for (SnakeDirection dir : SnakeDirection.values()) {
-                if (state.canIMoveInDirection(dir)) {
-                    int spaces = state.getOpenSpacesinDir(dir);
-                    if (spaces > finalOpenSpaces) {
-                        finalOpenSpaces = spaces;
-                    }
-                }
-            }
-        }
-        return 0;
+    @Override
+    public void onMapUpdate(MapUpdateEvent mapUpdateEvent) {
+        EngineWarmup.stop();
+        decisions.post(new Tick(mapUpdateEvent, EngineEvents.get().begin(EngineEvents.DECISION)));
     }
 
-    private int getLongestPossiblePath(SnakeState state, BonusTracker bt, int depth){
-        if(depth <= 0){
-            return finalizePath(state);
+    //Runs on the decision thread, returns false if a newer tick made this one pointless
+    private boolean decideMove(MapUpdateEvent mapUpdateEvent, Object decisionEvent, long arrivalNanos) {
+        engine.clearCancel();
+        if(decisions.isSuperseded()){
+            return false;
         }
 
-        checkBonusValue(state, bt, depth);
-
-        SnakeDirection currentDir = state.getSelf().getDir();
-        if(state.canIMoveInDirection(currentDir)){
-            return 1 + getLongestPossiblePath(state.createFutureState(currentDir), bt, depth-1);
-        } else {
-            int mostOpenSpaces = 0;
-            SnakeDirection bestDir = null;
-            for(SnakeDirection dir : SnakeDirection.values()){
-                int openSpaces = state.getOpenSpacesinDir(dir);
-                if(state.canIMoveInDirection(dir) && openSpaces > mostOpenSpaces){
-                    //System.out.println("Expected turnout when predicting bend: " + dir + ": " + openSpaces);
-                    mostOpenSpaces = openSpaces;
-                    bestDir = dir;
-
-                }
-            }
-
-            if(bestDir != null){
-                return 1 + getLongestPossiblePath(state.createFutureState(bestDir), bt, depth-1);
-            }
-
-            for(SnakeDirection dir : SnakeDirection.values()){
-                if(state.canIMoveInDirection(dir)){
-                    finalOpenSpaces = state.getOpenSpacesinDir(state.getSelf().getDir());
-                }
-            }
-            //System.out.println("Path ended: Returning with final open spaces " +  finalOpenSpaces);
-            return 0;
-        }
-    }
-
-
-
-    private void checkBonusValue(SnakeState state, BonusTracker bt, int depth){
-
-        if(state.getFoes().size() > 1){
-            if(!isHeadWrapped(state) && depth >= MAX_SEARCH_DEPTH - 10){
-                bt.headFree();
-            }
-
-            if(depth >= MAX_SEARCH_DEPTH - 20 && foodSet.contains(state.getSelf().getHead())){
-                bt.foodFound(15);
-            }
-
-            if(depth >= MAX_SEARCH_DEPTH - 2 && isSelfMovingMid(state)) {
-                bt.targetMiddle();
-            }
+        if(LOGGER.isDebugEnabled()){
+            LOGGER.debug("=============== CURRENTLY AT STATE NUMBER {} ===============", mapUpdateEvent.getGameTick());
         }
 
+        long millis = System.currentTimeMillis();
+        long deadline = arrivalNanos + TimeUnit.MILLISECONDS.toNanos(config.getTickBudgetMillis());
+        long gameTick = mapUpdateEvent.getGameTick();
 
+        SnakeState state = tracker.update(toBoard(mapUpdateEvent));
 
-        if(depth >= MAX_SEARCH_DEPTH - 10 && state.getIsKilledFoeState()){
-            //System.out.println("Predicting kill in " + (depth - MAX_SEARCH_DEPTH) + " steps");
-            bt.killBonus();
+        if(LOGGER.isDebugEnabled()){
+            LOGGER.debug("Current position: {}", state.getSelf().getHead());
         }
 
-    }
-
-    private int getCollisionRisk(SnakeState state, SnakeDirection dir){
-        int highRisk = 3 * getHighRiskValue(state, dir);
-        int lowRisk = getLowRiskValue(state, dir);
-        return highRisk + lowRisk;
-    }
+        recordBoard(state);
 
-    //Both getLowriskValue and getHighRiskValue are ugly as sin. Oh well.
-    private int getLowRiskValue(SnakeState state, SnakeDirection dir){
-        int lowRiskValue = 0;
-        HashMap<MapCoordinate, SnakeDirection> riskPosition = new HashMap<>();
-        MapCoordinate selfHead = state.getSelf().getHead();
-        switch (dir){
-            case LEFT:
-                riskPosition.put(selfHead.translateBy(-3, 0), SnakeDirection.LEFT);
-                riskPosition.put(selfHead.translateBy(-2, 1), null);
-                riskPosition.put(selfHead.translateBy(-2, -1), null);
-                riskPosition.put(selfHead.translateBy(-1, -2), SnakeDirection.UP);
-                riskPosition.put(selfHead.translateBy(-1, 2), SnakeDirection.DOWN);
-                break;
-            case RIGHT:
-                riskPosition.put(selfHead.translateBy(3, 0), SnakeDirection.RIGHT);
-                riskPosition.put(selfHead.translateBy(2, 1), null);
-                riskPosition.put(selfHead.translateBy(2, -1), null);
-                riskPosition.put(selfHead.translateBy(1, -2), SnakeDirection.UP);
-                riskPosition.put(selfHead.translateBy(1, 2), SnakeDirection.DOWN);
-                break;
-            case DOWN:
-                riskPosition.put(selfHead.translateBy(0, 3), SnakeDirection.DOWN);
-                riskPosition.put(selfHead.translateBy(-2, 1), SnakeDirection.LEFT);
-                riskPosition.put(selfHead.translateBy(2, 1), SnakeDirection.RIGHT);
-                riskPosition.put(selfHead.translateBy(1, 2), null);
-                riskPosition.put(selfHead.translateBy(-1, 2),null);
-                break;
-            case UP:
-                riskPosition.put(selfHead.translateBy(0, -3), SnakeDirection.UP);
-                riskPosition.put(selfHead.translateBy(-2, -1), SnakeDirection.LEFT);
-                riskPosition.put(selfHead.translateBy(2, -1), SnakeDirection.RIGHT);
-                riskPosition.put(selfHead.translateBy(1, -2), null);
-                riskPosition.put(selfHead.translateBy(-1, -2),null);
-                break;
+        Direction bestDir = searchPool.search(
+                () -> engine.getBestPossibleDirection(state, deadline), engine::cancel, deadline,
+                tracker.getFallbackMove());
 
-        }
-        for (Snake foe : state.getFoes()){
-            MapCoordinate foeHead = foe.getHead();
-            for(MapCoordinate riskPos : riskPosition.keySet()){
-                if(foeHead.equals(riskPos) && foe.getDir() != riskPosition.get(foeHead)){
-                    System.out.println("Low risk for collision detected");
-                    lowRiskValue++;
-                }
+        if(decisions.isSuperseded()){
+            if(LOGGER.isDebugEnabled()){
+                LOGGER.debug("Dropped the move for tick {}, a newer tick arrived", gameTick);
             }
+            return false;
         }
-        return lowRiskValue;
-    }
-
-    private int getHighRiskValue(SnakeState state, SnakeDirection dir){
-        int highRiskValue = 0;
-        HashMap<MapCoordinate, SnakeDirection> riskPosition = new HashMap<>();
-        MapCoordinate selfHead = state.getSelf().getHead();
-        switch (dir){
-            case LEFT:
-                riskPosition.put(selfHead.translateBy(-2, 0), SnakeDirection.LEFT);
-                riskPosition.put(selfHead.translateBy(-1, 1), SnakeDirection.DOWN);
-                riskPosition.put(selfHead.translateBy(-1, -1), SnakeDirection.UP);
-                break;
-            case RIGHT:
-                riskPosition.put(selfHead.translateBy(2, 0), SnakeDirection.RIGHT);
-                riskPosition.put(selfHead.translateBy(1, 1), SnakeDirection.DOWN);
-                riskPosition.put(selfHead.translateBy(1, -1), SnakeDirection.UP);
-                break;
-            case DOWN:
-                riskPosition.put(selfHead.translateBy(-1, 1), SnakeDirection.LEFT);
-                riskPosition.put(selfHead.translateBy(1, 1), SnakeDirection.RIGHT);
-                riskPosition.put(selfHead.translateBy(0, 2), SnakeDirection.DOWN);
-                break;
-            case UP:
-                riskPosition.put(selfHead.translateBy(-1, -1), SnakeDirection.LEFT);
-                riskPosition.put(selfHead.translateBy(1, -1), SnakeDirection.RIGHT);
-                riskPosition.put(selfHead.translateBy(0, -2), SnakeDirection.UP);
-                break;
 
+        tracker.moved(bestDir);
+        registerMove(gameTick, SERVER_DIRECTIONS[bestDir.ordinal()]);
+        EngineEvents.get().decision(decisionEvent, gameTick, engine.getDepthReached(), engine.getNodes(),
+                engine.getCellsFlooded(), bestDir);
+        if(renderer != null){
+            renderer.publish(state, gameTick);
         }
-        for (Snake foe : state.getFoes()){
-            MapCoordinate foeHead = foe.getHead();
-            for(MapCoordinate riskPos : riskPosition.keySet()){
-                if(foeHead.equals(riskPos) && foe.getDir() != riskPosition.get(foeHead)){
-                    System.out.println("High risk for collision detected!");
-                    highRiskValue++;
-                }
-            }
+        if(gameTick == 0){
+            EngineWarmup.reportFirstTick(System.nanoTime() - arrivalNanos);
         }
-        return highRiskValue;
-    }
-
-    private boolean isHeadWrapped(SnakeState state){
-        Snake self = state.getSelf();
-        MapCoordinate selfHead = self.getHead();
-        SnakeDirection selfDir = self.getDir();
-        HashSet<MapCoordinate> selfBody = self.getBodySet();
-        HashSet<MapCoordinate> blockades = state.getTotalSet();
-        blockades.removeAll(selfBody);
-
-        if(selfDir == SnakeDirection.DOWN || selfDir == SnakeDirection.UP){
-            return (blockades.contains(selfHead.translateBy(-1, 0))) ||
-                    blockades.contains(selfHead.translateBy(1, 0)) ||
-                    selfHead.x == 45 || selfHead.x == 0;
-        } else {
-            return (blockades.contains(selfHead.translateBy(0, 1))) ||
-                    blockades.contains(selfHead.translateBy(0, -1)) ||
-                    selfHead.y == 33 || selfHead.y == 0;
+        if(LOGGER.isDebugEnabled()){
+            LOGGER.debug("Elapsed time: {}", System.currentTimeMillis() - millis);
         }
+        return true;
     }
 
 
-    private MapCoordinate getTileInFront(Snake snake, SnakeDirection dir){
-        switch(dir) {
-            case RIGHT:
-                return snake.getHead().translateBy(1, 0);
-            case LEFT:
-                return snake.getHead().translateBy(-1, 0);
-            case DOWN:
-                return snake.getHead().translateBy(0, 1);
-            case UP:
-                return snake.getHead().translateBy(0, -1);
-            default:
-                return snake.getHead();
+    private void recordBoard(SnakeState state){
+        if(boardRecorder == null){
+            return;
+        }
+        try {
+            boardRecorder.record(state);
+        } catch (IOException e) {
+            LOGGER.warn("Could not record board, recording stopped", e);
+            boardRecorder = null;
         }
-
     }
-    
 
     @Override
     public void onInvalidPlayerName(InvalidPlayerName invalidPlayerName) {
@@ -491,18 +264,31 @@ public class SimpleSnakePlayer extends BaseSnakeClient {
     @Override
     public void onGameEnded(GameEndedEvent gameEndedEvent) {
         LOGGER.debug("GameEndedEvent: " + gameEndedEvent);
+        LOGGER.info("Decisions: {}", decisions.getStats());
+        LOGGER.info("Decision stages: {}", engine.getStageStats());
+        LOGGER.info("Search reuse: {}", engine.getReuseStats());
+        if(evaluationCache != null){
+            LOGGER.info("Evaluation cache: {}", evaluationCache.getStats());
+        }
     }
 
     @Override
     public void onGameStarting(GameStartingEvent gameStartingEvent) {
         LOGGER.debug("GameStartingEvent: " + gameStartingEvent);
+        warmUp(gameStartingEvent.getWidth(), gameStartingEvent.getHeight());
+    }
+
+    //Off the transport thread, with an engine set up like ours
+    private void warmUp(int width, int height){
+        EngineWarmup.warmInBackground(width, height, config.getMaxSearchDepth(), weights, evaluationCache != null,
+                config.getWarmupBudgetMillis());
     }
 
     @Override
     public void onPlayerRegistered(PlayerRegistered playerRegistered) {
         LOGGER.info("PlayerRegistered: " + playerRegistered);
 
-        if (AUTO_START_GAME) {
+        if (config.isAutoStartGame()) {
             startGame();
         }
     }
@@ -528,6 +314,8 @@ public class SimpleSnakePlayer extends BaseSnakeClient {
 
     @Override
     public void onConnected() {
+        warmUp(config.getMapWidth(), config.getMapHeight());
+
         LOGGER.info("Connected, registering for training...");
         GameSettings gameSettings = GameSettingsUtils.trainingWorld();
         registerForGame(gameSettings);
@@ -535,21 +323,21 @@ public class SimpleSnakePlayer extends BaseSnakeClient {
 
     @Override
     public String getName() {
-        return SNAKE_NAME;
+        return config.getSnakeName();
     }
 
     @Override
     public String getServerHost() {
-        return SERVER_NAME;
+        return config.getServerName();
     }
 
     @Override
     public int getServerPort() {
-        return SERVER_PORT;
+        return config.getServerPort();
     }
 
     @Override
     public GameMode getGameMode() {
-        return GAME_MODE;
+        return config.getGameMode();
     }
 }
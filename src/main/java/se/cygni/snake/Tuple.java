@@ -1,17 +0,0 @@
-package se.cygni.snake;
-
-/**
- * Created by trivo on 2017-03-29.
- */
-public class Tuple<F, S> {
-
-    public final F first;
-    public final S second;
-
-    public Tuple(F first, S second){
-        this.first = first;
-        this.second = second;
-    }
-
-
-}